@@ -0,0 +1,131 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+final class BenchmarkData {
+    private static final int BATCH_SIZE = 1000;
+
+    private BenchmarkData() {
+    }
+
+    static ConfigurableApplicationContext startContext(String... args) {
+        return start(WebApplicationType.NONE, args);
+    }
+
+    static ConfigurableApplicationContext startWebContext(String... args) {
+        return start(WebApplicationType.SERVLET, args);
+    }
+
+    private static ConfigurableApplicationContext start(WebApplicationType type, String... args) {
+        List<String> allArgs = new ArrayList<>(List.of("--spring.profiles.active=test",
+                "--spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1;IGNORECASE=TRUE;" +
+                        "DATABASE_TO_UPPER=false;QUERY_CACHE_SIZE=${filmorate.h2.query-cache-size}",
+                "--logging.level.root=WARN"));
+        allArgs.addAll(List.of(args));
+        return new SpringApplicationBuilder(FilmorateApplication.class)
+                .web(type)
+                .logStartupInfo(false)
+                .run(allArgs.toArray(new String[0]));
+    }
+
+    static void seedDb(JdbcTemplate jdbcTemplate, int users, int films, int likesPerFilm, int friendsPerUser) {
+        batch(jdbcTemplate, "INSERT INTO \"user\" (id, email, login, name, birthday) VALUES (?, ?, ?, ?, ?)",
+                users, i -> new Object[]{i, "user" + i + "@mail.ru", "user" + i, "User " + i,
+                        Date.valueOf(LocalDate.of(1990, 1, 1))});
+        batch(jdbcTemplate, "INSERT INTO film (id, name, description, release_date, duration, mpa_id) " +
+                        "VALUES (?, ?, ?, ?, ?, ?)",
+                films, i -> new Object[]{i, "Film " + i, "Description of film " + i,
+                        Date.valueOf(LocalDate.of(1950 + i % 70, 1, 1)), 90 + i % 60, 1 + i % 5});
+        batch(jdbcTemplate, "INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)",
+                films, i -> new Object[]{i, 1 + i % 6});
+
+        List<Object[]> pairs = new ArrayList<>();
+        forEachEdge(films, users, likesPerFilm, (filmId, userId) -> pairs.add(new Object[]{filmId, userId}));
+        batch(jdbcTemplate, "INSERT INTO film_likes (film_id, user_id) VALUES (?, ?)", pairs);
+        jdbcTemplate.update("UPDATE film AS f SET like_count = " +
+                "(SELECT COUNT(*) FROM film_likes AS fl WHERE fl.film_id = f.id)");
+
+        pairs.clear();
+        forEachEdge(users, users, friendsPerUser, (userId, friendId) -> pairs.add(new Object[]{userId, friendId}));
+        batch(jdbcTemplate, "INSERT INTO user_friends (user_id, friend_id) VALUES (?, ?)", pairs);
+
+        jdbcTemplate.execute("ALTER TABLE \"user\" ALTER COLUMN id RESTART WITH " + (users + 1));
+        jdbcTemplate.execute("ALTER TABLE film ALTER COLUMN id RESTART WITH " + (films + 1));
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    static void seedStorages(UserStorage userStorage, FilmStorage filmStorage,
+                             int users, int films, int likesPerFilm, int friendsPerUser) {
+        for (int i = 1; i <= users; i++) {
+            userStorage.add(User.builder()
+                    .email("user" + i + "@mail.ru")
+                    .login("user" + i)
+                    .name("User " + i)
+                    .birthday(LocalDate.of(1990, 1, 1))
+                    .build());
+        }
+        for (int i = 1; i <= films; i++) {
+            filmStorage.add(Film.builder()
+                    .name("Film " + i)
+                    .description("Description of film " + i)
+                    .releaseDate(LocalDate.of(1950 + i % 70, 1, 1))
+                    .duration(90 + i % 60)
+                    .mpa(Mpa.builder().id(1 + i % 5).build())
+                    .build());
+        }
+        forEachEdge(films, users, likesPerFilm, filmStorage::addLike);
+        forEachEdge(users, users, friendsPerUser, userStorage::addFriendship);
+    }
+
+    private static void forEachEdge(int sources, int targets, int perSource, BiConsumer<Integer, Integer> edge) {
+        Random random = new Random(42);
+        for (int source = 1; source <= sources; source++) {
+            int degree = Math.min(random.nextInt(2 * perSource + 1), targets - 1);
+            Set<Integer> picked = new HashSet<>();
+            while (picked.size() < degree) {
+                // squaring a uniform value skews edges towards low ids, so some films and users are "popular"
+                double skewed = Math.pow(random.nextDouble(), 2);
+                int target = 1 + (int) (skewed * targets);
+                if (target != source && picked.add(target)) {
+                    edge.accept(source, target);
+                }
+            }
+        }
+    }
+
+    private static void batch(JdbcTemplate jdbcTemplate, String sql, int rows, RowValues values) {
+        List<Object[]> args = new ArrayList<>(rows);
+        for (int i = 1; i <= rows; i++) {
+            args.add(values.of(i));
+        }
+        batch(jdbcTemplate, sql, args);
+    }
+
+    private static void batch(JdbcTemplate jdbcTemplate, String sql, List<Object[]> args) {
+        for (int from = 0; from < args.size(); from += BATCH_SIZE) {
+            jdbcTemplate.batchUpdate(sql, args.subList(from, Math.min(from + BATCH_SIZE, args.size())));
+        }
+    }
+
+    private interface RowValues {
+        Object[] of(int i);
+    }
+}
@@ -0,0 +1,169 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.metrics.SqlQueryCounter;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.ChangeTracker;
+import ru.yandex.practicum.filmorate.service.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.LikeMatrix;
+import ru.yandex.practicum.filmorate.service.LikeWriteBehind;
+import ru.yandex.practicum.filmorate.service.PopularityIndex;
+import ru.yandex.practicum.filmorate.service.TrendingIndex;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.impl.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.impl.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.impl.InMemoryUserStorage;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FilmBenchmark {
+    @Param({"db", "memory"})
+    String storageType;
+
+    @Param({"1000", "10000", "100000"})
+    int films;
+
+    @Param("1000")
+    int users;
+
+    @Param("20")
+    int likesPerFilm;
+
+    @Param("false")
+    boolean writeBehind;
+
+    private ConfigurableApplicationContext context;
+    private FilmStorage storage;
+    private FilmService service;
+    private LikeWriteBehind likeWriteBehind;
+    private TrendingIndex trendingIndex;
+    private SqlQueryCounter queryCounter;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        if ("db".equals(storageType)) {
+            context = BenchmarkData.startContext("--filmorate.likes.write-behind.enabled=" + writeBehind);
+            BenchmarkData.seedDb(context.getBean(JdbcTemplate.class), users, films, likesPerFilm, 0);
+            context.getBean(PopularityIndex.class).rebuild();
+            context.getBean(LikeMatrix.class).rebuild();
+            context.getBean(TrendingIndex.class).rebuild();
+            context.getBean(FilmSearchIndex.class).rebuild();
+            storage = context.getBean(FilmDbStorage.class);
+            service = context.getBean(FilmService.class);
+            queryCounter = context.getBean(SqlQueryCounter.class);
+        } else {
+            InMemoryUserStorage userStorage = new InMemoryUserStorage();
+            storage = new InMemoryFilmStorage();
+            BenchmarkData.seedStorages(userStorage, storage, users, films, likesPerFilm, 0);
+            PopularityIndex popularityIndex = new PopularityIndex(storage);
+            popularityIndex.rebuild();
+            LikeMatrix likeMatrix = new LikeMatrix(storage, 50, 1000);
+            likeMatrix.rebuild();
+            likeWriteBehind = new LikeWriteBehind(storage, likeMatrix, writeBehind, 500, Duration.ofSeconds(1));
+            likeWriteBehind.start();
+            trendingIndex = new TrendingIndex(storage, Duration.ofHours(1),
+                    List.of(Duration.ofHours(1), Duration.ofDays(1), Duration.ofDays(7)), Duration.ofMinutes(1));
+            trendingIndex.start();
+            FilmSearchIndex searchIndex = new FilmSearchIndex(storage, popularityIndex, 0.1);
+            searchIndex.rebuild();
+            service = new FilmService(storage, userStorage, popularityIndex, likeWriteBehind, new ChangeTracker(),
+                    likeMatrix, trendingIndex, searchIndex);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        if (likeWriteBehind != null) {
+            likeWriteBehind.stop();
+        }
+        if (trendingIndex != null) {
+            trendingIndex.stop();
+        }
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    @Benchmark
+    public List<Film> getPopular(QueryCounts counts) {
+        return counts.count(queryCounter, () -> service.getPopular(10));
+    }
+
+    @Benchmark
+    public List<Film> getPopularFiltered(QueryCounts counts) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return counts.count(queryCounter, () -> service.getPopular(10, 1 + random.nextInt(6),
+                1950 + random.nextInt(70), 1 + random.nextInt(5)));
+    }
+
+    @Benchmark
+    public List<Film> getTrending(QueryCounts counts) {
+        return counts.count(queryCounter, () -> service.getTrending(Duration.ofDays(1), 10));
+    }
+
+    @Benchmark
+    public List<Film> search(QueryCounts counts) {
+        String query = "film " + (1 + ThreadLocalRandom.current().nextInt(99));
+        return counts.count(queryCounter, () -> service.search(query, List.of("title"), 10));
+    }
+
+    @Benchmark
+    public boolean putAndDeleteLike(QueryCounts counts) {
+        return counts.count(queryCounter, this::likeAndUnlike);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean putAndDeleteLikeConcurrently() {
+        return likeAndUnlike();
+    }
+
+    @Benchmark
+    public List<Film> getRecommendations(QueryCounts counts) {
+        int userId = 1 + ThreadLocalRandom.current().nextInt(users);
+        return counts.count(queryCounter, () -> service.getRecommendations(userId, 10));
+    }
+
+    @Benchmark
+    public Film getById(QueryCounts counts) {
+        int filmId = 1 + ThreadLocalRandom.current().nextInt(films);
+        return counts.count(queryCounter, () -> storage.getById(filmId));
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<Film> getAll(QueryCounts counts) {
+        return counts.count(queryCounter, storage::getAll);
+    }
+
+    private boolean likeAndUnlike() {
+        int filmId = 1 + ThreadLocalRandom.current().nextInt(films);
+        int userId = 1 + ThreadLocalRandom.current().nextInt(users);
+        return service.putLike(filmId, userId) & service.deleteLike(filmId, userId);
+    }
+}
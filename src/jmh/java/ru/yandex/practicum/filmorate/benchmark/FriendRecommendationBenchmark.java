@@ -0,0 +1,100 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.model.FriendRecommendation;
+import ru.yandex.practicum.filmorate.service.FriendRecommendations;
+import ru.yandex.practicum.filmorate.storage.film.impl.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.storage.user.impl.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.impl.UserDbStorage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Friend-of-friend ranking for a hub user, with {@code hubFriends} friends on top of the random graph.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FriendRecommendationBenchmark {
+    private static final int HUB = 1;
+
+    @Param({"db", "memory"})
+    String storageType;
+
+    @Param("20000")
+    int users;
+
+    @Param("50")
+    int friendsPerUser;
+
+    @Param("5000")
+    int hubFriends;
+
+    @Param("1000")
+    int fanOutCap;
+
+    private ConfigurableApplicationContext context;
+    private UserStorage storage;
+    private FriendRecommendations recommendations;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        if ("db".equals(storageType)) {
+            context = BenchmarkData.startContext();
+            JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+            BenchmarkData.seedDb(jdbcTemplate, users, 0, 0, friendsPerUser);
+            List<Object[]> edges = new ArrayList<>(hubFriends);
+            for (int friendId = HUB + 1; friendId <= HUB + hubFriends; friendId++) {
+                edges.add(new Object[]{HUB, friendId});
+            }
+            jdbcTemplate.update("DELETE FROM user_friends WHERE user_id = ?", HUB);
+            jdbcTemplate.batchUpdate("INSERT INTO user_friends (user_id, friend_id) VALUES (?, ?)", edges);
+            storage = context.getBean(UserDbStorage.class);
+        } else {
+            storage = new InMemoryUserStorage();
+            BenchmarkData.seedStorages(storage, new InMemoryFilmStorage(), users, 0, 0, friendsPerUser);
+            for (int friendId = HUB + 1; friendId <= HUB + hubFriends; friendId++) {
+                storage.addFriendship(HUB, friendId);
+            }
+        }
+        recommendations = new FriendRecommendations(storage, fanOutCap, 10000);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    @Benchmark
+    public Map<Integer, Integer> uncached() {
+        return storage.getFriendCandidates(HUB, fanOutCap, FriendRecommendations.MAX_COUNT);
+    }
+
+    @Benchmark
+    public List<FriendRecommendation> cached() {
+        return recommendations.recommend(HUB, 10);
+    }
+}
@@ -0,0 +1,106 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.ImportResult;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.ImportFormat;
+import ru.yandex.practicum.filmorate.service.ImportService;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ImportBenchmark {
+    @Param({"10000", "100000"})
+    int films;
+
+    @Param("5000")
+    int chunkSize;
+
+    private ConfigurableApplicationContext context;
+    private JdbcTemplate jdbcTemplate;
+    private ImportService importService;
+    private FilmService filmService;
+    private List<Film> records;
+    private byte[] ndjson;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        context = BenchmarkData.startContext("--filmorate.import.chunk-size=" + chunkSize);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        importService = context.getBean(ImportService.class);
+        filmService = context.getBean(FilmService.class);
+
+        ObjectMapper objectMapper = context.getBean(ObjectMapper.class);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        records = new ArrayList<>(films);
+        for (int i = 1; i <= films; i++) {
+            Film film = Film.builder()
+                    .name("Film " + i)
+                    .description("Description of film " + i)
+                    .releaseDate(LocalDate.of(1950 + i % 70, 1, 1))
+                    .duration(90 + i % 60)
+                    .mpa(Mpa.builder().id(1 + i % 5).build())
+                    .genres(Set.of(Genre.builder().id(1 + i % 6).build()))
+                    .build();
+            records.add(film);
+            objectMapper.writeValue(out, film);
+            out.write('\n');
+        }
+        ndjson = out.toByteArray();
+    }
+
+    @Setup(Level.Invocation)
+    public void clearFilms() {
+        jdbcTemplate.update("DELETE FROM film_genres");
+        jdbcTemplate.update("DELETE FROM film");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public ImportResult bulkImport() {
+        return importService.importFilms(new ByteArrayInputStream(ndjson), ImportFormat.NDJSON);
+    }
+
+    @Benchmark
+    public int singleAdds() {
+        int lastId = 0;
+        for (Film film : records) {
+            lastId = filmService.add(film).getId();
+        }
+        return lastId;
+    }
+}
@@ -0,0 +1,109 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.impl.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.user.impl.UserDbStorage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reverse lookups over the join tables (likes by film, users who have a given friend, common friends) with
+ * the secondary indexes, with only the single-column indexes H2 creates for foreign keys, and with no index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IndexBenchmark {
+    private static final List<String> INDEXES = List.of("film_likes_film_id_idx", "user_friends_friend_id_idx");
+    private static final Map<String, String> FOREIGN_KEYS = Map.of("film_likes", "film_likes_film_fk",
+            "user_friends", "user_friends_friend_fk");
+
+    @Param({"secondary", "foreign-key", "none"})
+    String indexes;
+
+    @Param("10000")
+    int users;
+
+    @Param("10000")
+    int films;
+
+    @Param("50")
+    int likesPerFilm;
+
+    @Param("50")
+    int friendsPerUser;
+
+    @Param("20")
+    int batch;
+
+    private ConfigurableApplicationContext context;
+    private FilmDbStorage filmStorage;
+    private UserDbStorage userStorage;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkData.startContext();
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        BenchmarkData.seedDb(jdbcTemplate, users, films, likesPerFilm, friendsPerUser);
+        if (!"secondary".equals(indexes)) {
+            // H2 replaces a dropped index that backs a foreign key with one of its own
+            INDEXES.forEach(index -> jdbcTemplate.execute("DROP INDEX " + index));
+        }
+        if ("none".equals(indexes)) {
+            FOREIGN_KEYS.forEach((table, key) ->
+                    jdbcTemplate.execute("ALTER TABLE " + table + " DROP CONSTRAINT " + key));
+        }
+        jdbcTemplate.execute("ANALYZE");
+        filmStorage = context.getBean(FilmDbStorage.class);
+        userStorage = context.getBean(UserDbStorage.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Film> getFilmsWithLikes() {
+        List<Integer> ids = new ArrayList<>(batch);
+        for (int i = 0; i < batch; i++) {
+            ids.add(1 + ThreadLocalRandom.current().nextInt(films));
+        }
+        return filmStorage.getByIds(ids);
+    }
+
+    @Benchmark
+    public List<Integer> getIdsWithFriend() {
+        return userStorage.getIdsWithFriend(1 + ThreadLocalRandom.current().nextInt(users));
+    }
+
+    @Benchmark
+    public List<User> getCommonFriends() {
+        int id = 1 + ThreadLocalRandom.current().nextInt(users);
+        int otherId = 1 + ThreadLocalRandom.current().nextInt(users);
+        return userStorage.getCommonFriends(id, otherId);
+    }
+}
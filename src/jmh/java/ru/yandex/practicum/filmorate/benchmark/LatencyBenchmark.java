@@ -0,0 +1,93 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tail latency of cheap reference reads while heavy film pages saturate the server,
+ * with and without per-endpoint bulkheads. Rejected film requests count as completed samples.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class LatencyBenchmark {
+    @Param({"sync", "bulkhead"})
+    String mode;
+
+    @Param("8")
+    int tomcatThreads;
+
+    @Param("4")
+    int filmsBulkhead;
+
+    @Param("20000")
+    int films;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private String baseUrl;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkData.startWebContext("--server.port=0",
+                "--server.tomcat.threads.max=" + tomcatThreads,
+                "--filmorate.execution.mode=" + mode,
+                "--filmorate.execution.bulkheads.films=" + filmsBulkhead,
+                "--filmorate.execution.acquire-timeout=0ms");
+        BenchmarkData.seedDb(context.getBean(JdbcTemplate.class), 1000, films, 20, 20);
+        baseUrl = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @Group("burst")
+    @GroupThreads(12)
+    public int filmPages() throws IOException, InterruptedException {
+        int after = ThreadLocalRandom.current().nextInt(films - 1000);
+        return get("/films?after=" + after + "&limit=1000");
+    }
+
+    @Benchmark
+    @Group("burst")
+    @GroupThreads(2)
+    public int genres() throws IOException, InterruptedException {
+        return get("/genres");
+    }
+
+    private int get(String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path)).GET().build();
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
@@ -0,0 +1,82 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.PopularityIndex;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(16)
+public class PoolBenchmark {
+    @Param({"1", "2", "4", "8", "16"})
+    int poolSize;
+
+    @Param({"8", "64"})
+    int queryCacheSize;
+
+    @Param("10000")
+    int films;
+
+    @Param("1000")
+    int users;
+
+    private ConfigurableApplicationContext context;
+    private FilmService filmService;
+    private UserService userService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkData.startContext(
+                "--spring.datasource.hikari.maximum-pool-size=" + poolSize,
+                "--spring.datasource.hikari.minimum-idle=" + poolSize,
+                "--filmorate.h2.query-cache-size=" + queryCacheSize);
+        BenchmarkData.seedDb(context.getBean(JdbcTemplate.class), users, films, 20, 20);
+        context.getBean(PopularityIndex.class).rebuild();
+        filmService = context.getBean(FilmService.class);
+        userService = context.getBean(UserService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Object mixedLoad() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int filmId = 1 + random.nextInt(films);
+        int userId = 1 + random.nextInt(users);
+        int operation = random.nextInt(10);
+        if (operation < 5) {
+            return filmService.getById(filmId);
+        } else if (operation < 7) {
+            return filmService.getPopular(10);
+        } else if (operation < 8) {
+            return userService.getFriends(userId, false);
+        }
+        return filmService.putLike(filmId, userId) & filmService.deleteLike(filmId, userId);
+    }
+}
@@ -0,0 +1,40 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import ru.yandex.practicum.filmorate.metrics.SqlQueryCounter;
+
+import java.util.function.Supplier;
+
+/**
+ * Reports the SQL queries issued by a benchmark next to its latency; queries divided by operations is the
+ * query count per operation. JMH sums event counters over iterations, so both are totals rather than a ratio.
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.EVENTS)
+public class QueryCounts {
+    public long queries;
+    public long operations;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+        queries = 0;
+        operations = 0;
+    }
+
+    <T> T count(SqlQueryCounter counter, Supplier<T> operation) {
+        operations++;
+        if (counter == null) {
+            return operation.get();
+        }
+        counter.start();
+        try {
+            return operation.get();
+        } finally {
+            queries += counter.stop();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.ChangeTracker;
+import ru.yandex.practicum.filmorate.service.FriendRecommendations;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.film.impl.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.impl.InMemoryUserStorage;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserBenchmark {
+    @Param({"db", "memory"})
+    String storageType;
+
+    @Param({"1000", "10000"})
+    int users;
+
+    @Param("100")
+    int friendsPerUser;
+
+    private ConfigurableApplicationContext context;
+    private UserService service;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        if ("db".equals(storageType)) {
+            context = BenchmarkData.startContext();
+            BenchmarkData.seedDb(context.getBean(JdbcTemplate.class), users, 0, 0, friendsPerUser);
+            service = context.getBean(UserService.class);
+        } else {
+            InMemoryUserStorage storage = new InMemoryUserStorage();
+            BenchmarkData.seedStorages(storage, new InMemoryFilmStorage(), users, 0, 0, friendsPerUser);
+            service = new UserService(storage, new ChangeTracker(),
+                    new FriendRecommendations(storage, 1000, 10000));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    @Benchmark
+    public List<User> getCommonFriends() {
+        int id = 1 + ThreadLocalRandom.current().nextInt(users);
+        int otherId = 1 + ThreadLocalRandom.current().nextInt(users);
+        return service.getCommonFriends(id, otherId);
+    }
+
+    @Benchmark
+    public List<User> getFriends() {
+        return service.getFriends(1 + ThreadLocalRandom.current().nextInt(users), true);
+    }
+}
@@ -1,13 +1,25 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.controller.response.JsonResponseCache;
+import ru.yandex.practicum.filmorate.controller.response.Prefer;
+import ru.yandex.practicum.filmorate.controller.response.StreamingJsonArray;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.ChangeTracker;
 import ru.yandex.practicum.filmorate.service.FilmService;
 
 import javax.validation.Valid;
+import java.time.Duration;
 import java.util.List;
 
 @Slf4j
@@ -16,29 +28,49 @@ import java.util.List;
 @RestController
 @RequestMapping("/films")
 public class FilmController {
+    private static final int DEFAULT_PAGE_SIZE = 100;
+
     FilmService service;
+    ObjectMapper objectMapper;
+    ChangeTracker changeTracker;
+    JsonResponseCache responseCache;
 
     @GetMapping
-    public List<Film> getAll() {
-        return service.getAll();
+    public List<Film> getAll(@RequestParam(required = false) Integer after,
+                             @RequestParam(required = false) Integer limit) {
+        if (after == null && limit == null) {
+            return service.getAll();
+        }
+        return service.getPage(after == null ? 0 : after, limit == null ? DEFAULT_PAGE_SIZE : limit);
+    }
+
+    @GetMapping(params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> streamAll() {
+        return StreamingJsonArray.of(objectMapper,
+                afterId -> service.getPage(afterId, FilmService.MAX_PAGE_SIZE), Film::getId);
     }
 
     @GetMapping("/{id}")
-    public Film getById(@PathVariable int id) {
+    public Film getById(@PathVariable int id, WebRequest request) {
+        if (request.checkNotModified(changeTracker.etag(ChangeTracker.Region.FILMS))) {
+            return null;
+        }
         return service.getById(id);
     }
 
 
     @PostMapping
-    public Film add(@Valid @RequestBody Film film) {
+    public ResponseEntity<Object> add(@Valid @RequestBody Film film,
+                                      @RequestHeader(value = Prefer.HEADER, required = false) String prefer) {
         log.info("Adding film: {}", film);
-        return service.add(film);
+        return Prefer.respond(prefer, service.add(film), Film::getId);
     }
 
     @PutMapping
-    public Film update(@Valid @RequestBody Film film) {
+    public ResponseEntity<Object> update(@Valid @RequestBody Film film,
+                                         @RequestHeader(value = Prefer.HEADER, required = false) String prefer) {
         log.info("Updating film: {}", film);
-        return service.update(film);
+        return Prefer.respond(prefer, service.update(film), Film::getId);
     }
 
     @PutMapping("/{id}/like/{userId}")
@@ -52,7 +84,37 @@ public class FilmController {
     }
 
     @GetMapping("/popular")
-    public List<Film> getPopular(@RequestParam(defaultValue = "10") int count) {
-        return service.getPopular(count);
+    public ResponseEntity<byte[]> getPopular(@RequestParam(defaultValue = "10") int count,
+                                             @RequestParam(required = false) Integer genreId,
+                                             @RequestParam(required = false) Integer year,
+                                             @RequestParam(required = false) Integer mpaId,
+                                             WebRequest request) {
+        long version = changeTracker.version(ChangeTracker.Region.FILMS);
+        if (request.checkNotModified(changeTracker.etag(ChangeTracker.Region.FILMS, version))) {
+            return null;
+        }
+        String key = String.format("popular?count=%d&genreId=%s&year=%s&mpaId=%s", count, genreId, year, mpaId);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(responseCache.get(key, version, () -> service.getPopular(count, genreId, year, mpaId)));
+    }
+
+    @GetMapping("/trending")
+    public List<Film> getTrending(@RequestParam(defaultValue = "24h") String window,
+                                  @RequestParam(defaultValue = "10") int count) {
+        Duration duration;
+        try {
+            duration = DurationStyle.detectAndParse(window);
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException("window", String.format("Invalid window '%s'", window));
+        }
+        return service.getTrending(duration, count);
+    }
+
+    @GetMapping("/search")
+    public List<Film> search(@RequestParam String query,
+                             @RequestParam(defaultValue = "title,description") List<String> by,
+                             @RequestParam(defaultValue = "10") int count) {
+        return service.search(query, by, count);
     }
 }
@@ -1,30 +1,32 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.Value;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
-import ru.yandex.practicum.filmorate.model.Genre;
+import org.springframework.web.context.request.WebRequest;
+import ru.yandex.practicum.filmorate.controller.response.ContentETag;
 import ru.yandex.practicum.filmorate.service.GenreService;
 
-import java.util.List;
-
 @Value
 @RequiredArgsConstructor
 @RestController
 @RequestMapping("/genres")
 public class GenreController {
     GenreService service;
+    ObjectMapper objectMapper;
 
     @GetMapping
-    public List<Genre> getAll() {
-        return service.getAll();
+    public ResponseEntity<byte[]> getAll(WebRequest request) {
+        return ContentETag.respond(objectMapper, request, service.getAll());
     }
 
     @GetMapping("/{id}")
-    public Genre getById(@PathVariable int id) {
-        return service.getById(id);
+    public ResponseEntity<byte[]> getById(@PathVariable int id, WebRequest request) {
+        return ContentETag.respond(objectMapper, request, service.getById(id));
     }
 }
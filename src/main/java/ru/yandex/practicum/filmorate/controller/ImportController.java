@@ -0,0 +1,54 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import ru.yandex.practicum.filmorate.model.ImportResult;
+import ru.yandex.practicum.filmorate.service.ImportFormat;
+import ru.yandex.practicum.filmorate.service.ImportService;
+
+import java.io.InputStream;
+
+@Value
+@RequiredArgsConstructor
+@RestController
+@RequestMapping("/import")
+public class ImportController {
+    private static final String NDJSON = "application/x-ndjson";
+    private static final String CSV = "text/csv";
+
+    ImportService service;
+
+    @PostMapping(value = "/films", consumes = NDJSON)
+    public ImportResult importFilms(@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+                                    InputStream body) {
+        return service.importFilms(body, formatOf(contentType));
+    }
+
+    @PostMapping(value = "/users", consumes = {NDJSON, CSV})
+    public ImportResult importUsers(@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+                                    InputStream body) {
+        return service.importUsers(body, formatOf(contentType));
+    }
+
+    @PostMapping(value = "/likes", consumes = {NDJSON, CSV})
+    public ImportResult importLikes(@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+                                    InputStream body) {
+        return service.importLikes(body, formatOf(contentType));
+    }
+
+    @PostMapping(value = "/friendships", consumes = {NDJSON, CSV})
+    public ImportResult importFriendships(@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+                                          InputStream body) {
+        return service.importFriendships(body, formatOf(contentType));
+    }
+
+    private static ImportFormat formatOf(MediaType contentType) {
+        return MediaType.valueOf(CSV).includes(contentType) ? ImportFormat.CSV : ImportFormat.NDJSON;
+    }
+}
@@ -1,10 +1,20 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.controller.response.Prefer;
+import ru.yandex.practicum.filmorate.controller.response.StreamingJsonArray;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FriendRecommendation;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.ChangeTracker;
+import ru.yandex.practicum.filmorate.service.FilmService;
 import ru.yandex.practicum.filmorate.service.UserService;
 
 import javax.validation.Valid;
@@ -16,27 +26,47 @@ import java.util.List;
 @RestController
 @RequestMapping("/users")
 public class UserController {
+    private static final int DEFAULT_PAGE_SIZE = 100;
+
     UserService service;
+    ObjectMapper objectMapper;
+    ChangeTracker changeTracker;
+    FilmService filmService;
 
     @GetMapping
-    public List<User> getAll() {
-        return service.getAll();
+    public List<User> getAll(@RequestParam(required = false) Integer after,
+                             @RequestParam(required = false) Integer limit) {
+        if (after == null && limit == null) {
+            return service.getAll();
+        }
+        return service.getPage(after == null ? 0 : after, limit == null ? DEFAULT_PAGE_SIZE : limit);
+    }
+
+    @GetMapping(params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> streamAll() {
+        return StreamingJsonArray.of(objectMapper,
+                afterId -> service.getPage(afterId, UserService.MAX_PAGE_SIZE), User::getId);
     }
 
     @PostMapping
-    public User add(@Valid @RequestBody User user) {
+    public ResponseEntity<Object> add(@Valid @RequestBody User user,
+                                      @RequestHeader(value = Prefer.HEADER, required = false) String prefer) {
         log.info("Adding user: {}", user);
-        return service.add(user);
+        return Prefer.respond(prefer, service.add(user), User::getId);
     }
 
     @PutMapping
-    public User update(@Valid @RequestBody User user) {
+    public ResponseEntity<Object> update(@Valid @RequestBody User user,
+                                         @RequestHeader(value = Prefer.HEADER, required = false) String prefer) {
         log.info("Updating user: {}", user);
-        return service.update(user);
+        return Prefer.respond(prefer, service.update(user), User::getId);
     }
 
     @GetMapping("/{id}")
-    public User getById(@PathVariable int id) {
+    public User getById(@PathVariable int id, WebRequest request) {
+        if (request.checkNotModified(changeTracker.etag(ChangeTracker.Region.USERS))) {
+            return null;
+        }
         return service.getById(id);
     }
 
@@ -55,8 +85,25 @@ public class UserController {
         return service.deleteFriend(id, friendId);
     }
 
+    @GetMapping("/{id}/recommendations/friends")
+    public List<FriendRecommendation> getFriendRecommendations(@PathVariable int id,
+                                                               @RequestParam(defaultValue = "10") int count) {
+        return service.getFriendRecommendations(id, count);
+    }
+
+    @GetMapping("/{id}/recommendations/films")
+    public List<Film> getFilmRecommendations(@PathVariable int id, @RequestParam(defaultValue = "10") int count) {
+        return filmService.getRecommendations(id, count);
+    }
+
     @GetMapping("/{id}/friends")
-    public List<User> getFriends(@PathVariable int id) {
-        return service.getFriends(id);
+    public List<User> getFriends(@PathVariable int id, @RequestParam(defaultValue = "true") boolean withFriends,
+                                 @RequestParam(required = false) Integer after,
+                                 @RequestParam(required = false) Integer limit) {
+        if (after == null && limit == null) {
+            return service.getFriends(id, withFriends);
+        }
+        return service.getFriendsPage(id, after == null ? 0 : after, limit == null ? DEFAULT_PAGE_SIZE : limit,
+                withFriends);
     }
 }
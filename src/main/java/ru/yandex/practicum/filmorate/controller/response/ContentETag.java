@@ -0,0 +1,35 @@
+package ru.yandex.practicum.filmorate.controller.response;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.context.request.WebRequest;
+
+/**
+ * Answers with a JSON body whose ETag is the MD5 of the serialized bytes, for data without a change version.
+ */
+public final class ContentETag {
+    private ContentETag() {
+    }
+
+    public static ResponseEntity<byte[]> respond(ObjectMapper mapper, WebRequest request, Object value) {
+        byte[] body;
+        try {
+            body = mapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize response", e);
+        }
+        if (request.checkNotModified(etag(body))) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
+    static String etag(byte[] body) {
+        return "\"" + DigestUtils.md5DigestAsHex(body) + "\"";
+    }
+}
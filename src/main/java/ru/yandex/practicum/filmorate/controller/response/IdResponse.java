@@ -0,0 +1,8 @@
+package ru.yandex.practicum.filmorate.controller.response;
+
+import lombok.Value;
+
+@Value
+public class IdResponse {
+    int id;
+}
@@ -0,0 +1,76 @@
+package ru.yandex.practicum.filmorate.controller.response;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Serialized JSON bodies keyed by request, each valid for one data version.
+ * Storing a body for a newer version drops the bodies of older versions; the rest are evicted least recently used.
+ */
+@Component
+public class JsonResponseCache {
+    private static final int MAX_ENTRIES = 256;
+
+    private final ObjectMapper objectMapper;
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+    private final Counter hits;
+    private final Counter misses;
+
+    public JsonResponseCache(ObjectMapper objectMapper, MeterRegistry registry) {
+        this.objectMapper = objectMapper;
+        this.hits = Counter.builder("filmorate.response.cache").tag("result", "hit").register(registry);
+        this.misses = Counter.builder("filmorate.response.cache").tag("result", "miss").register(registry);
+    }
+
+    public byte[] get(String key, long version, Supplier<?> loader) {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+        }
+        if (entry != null && entry.getVersion() == version) {
+            hits.increment();
+            return entry.getBody();
+        }
+        misses.increment();
+        byte[] body = serialize(loader.get());
+        synchronized (entries) {
+            entries.values().removeIf(cached -> cached.getVersion() < version);
+            entries.merge(key, new Entry(version, body),
+                    (current, loaded) -> current.getVersion() > loaded.getVersion() ? current : loaded);
+        }
+        return body;
+    }
+
+    int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private byte[] serialize(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize response", e);
+        }
+    }
+
+    @Value
+    private static class Entry {
+        long version;
+        byte[] body;
+    }
+}
@@ -0,0 +1,37 @@
+package ru.yandex.practicum.filmorate.controller.response;
+
+import org.springframework.http.ResponseEntity;
+
+import java.util.function.ToIntFunction;
+
+/**
+ * Honours {@code Prefer: return=minimal} (RFC 7240) on writes by answering with the id only.
+ */
+public final class Prefer {
+    public static final String HEADER = "Prefer";
+    private static final String RETURN_MINIMAL = "return=minimal";
+
+    private Prefer() {
+    }
+
+    public static <T> ResponseEntity<Object> respond(String prefer, T entity, ToIntFunction<T> id) {
+        if (isMinimal(prefer)) {
+            return ResponseEntity.ok()
+                    .header("Preference-Applied", RETURN_MINIMAL)
+                    .body(new IdResponse(id.applyAsInt(entity)));
+        }
+        return ResponseEntity.ok(entity);
+    }
+
+    static boolean isMinimal(String prefer) {
+        if (prefer == null) {
+            return false;
+        }
+        for (String preference : prefer.split(",")) {
+            if (preference.trim().equalsIgnoreCase(RETURN_MINIMAL)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,38 @@
+package ru.yandex.practicum.filmorate.controller.response;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+
+public final class StreamingJsonArray {
+    private StreamingJsonArray() {
+    }
+
+    public static <T> ResponseEntity<StreamingResponseBody> of(ObjectMapper mapper,
+                                                               IntFunction<List<T>> pageAfter,
+                                                               ToIntFunction<T> idOf) {
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = mapper.getFactory().createGenerator(out)) {
+                generator.writeStartArray();
+                List<T> page = pageAfter.apply(0);
+                while (!page.isEmpty()) {
+                    for (T item : page) {
+                        generator.writeObject(item);
+                    }
+                    generator.flush();
+                    page = pageAfter.apply(idOf.applyAsInt(page.get(page.size() - 1)));
+                }
+                generator.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+}
@@ -0,0 +1,79 @@
+package ru.yandex.practicum.filmorate.execution;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import ru.yandex.practicum.filmorate.exception.BulkheadFullException;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds a permit of the request's bulkhead from handler start until the response completes,
+ * including the async part of streaming responses.
+ */
+public class BulkheadInterceptor implements AsyncHandlerInterceptor {
+    private static final String PERMIT_ATTRIBUTE = BulkheadInterceptor.class.getName() + ".permit";
+
+    private final Map<String, Semaphore> bulkheads = new HashMap<>();
+    private final Map<String, Counter> rejections = new HashMap<>();
+    private final long acquireTimeoutNanos;
+
+    public BulkheadInterceptor(ExecutionProperties properties, MeterRegistry registry) {
+        properties.getBulkheads().forEach((name, permits) -> {
+            Semaphore semaphore = new Semaphore(permits);
+            bulkheads.put(name, semaphore);
+            Gauge.builder("filmorate.bulkhead.available", semaphore, Semaphore::availablePermits)
+                    .tag("bulkhead", name)
+                    .register(registry);
+            rejections.put(name, Counter.builder("filmorate.bulkhead.rejected")
+                    .tag("bulkhead", name)
+                    .register(registry));
+        });
+        this.acquireTimeoutNanos = properties.getAcquireTimeout().toNanos();
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+            throws InterruptedException {
+        if (request.getDispatcherType() == DispatcherType.ASYNC) {
+            return true;
+        }
+        String name = bulkheadOf(request.getRequestURI());
+        Semaphore semaphore = bulkheads.get(name);
+        if (semaphore == null) {
+            return true;
+        }
+        if (!semaphore.tryAcquire(acquireTimeoutNanos, TimeUnit.NANOSECONDS)) {
+            rejections.get(name).increment();
+            throw new BulkheadFullException(String.format("Too many concurrent requests to /%s", name));
+        }
+        request.setAttribute(PERMIT_ATTRIBUTE, semaphore);
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        if (request.isAsyncStarted()) {
+            return;
+        }
+        Object semaphore = request.getAttribute(PERMIT_ATTRIBUTE);
+        if (semaphore != null) {
+            request.removeAttribute(PERMIT_ATTRIBUTE);
+            ((Semaphore) semaphore).release();
+        }
+    }
+
+    static String bulkheadOf(String uri) {
+        int start = uri.startsWith("/") ? 1 : 0;
+        int end = uri.indexOf('/', start);
+        return end < 0 ? uri.substring(start) : uri.substring(start, end);
+    }
+}
@@ -0,0 +1,24 @@
+package ru.yandex.practicum.filmorate.execution;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+@EnableConfigurationProperties(ExecutionProperties.class)
+@ConditionalOnProperty(name = "filmorate.execution.mode", havingValue = "bulkhead")
+public class BulkheadWebConfig implements WebMvcConfigurer {
+    private final BulkheadInterceptor bulkheadInterceptor;
+
+    public BulkheadWebConfig(ExecutionProperties properties, MeterRegistry registry) {
+        this.bulkheadInterceptor = new BulkheadInterceptor(properties, registry);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(bulkheadInterceptor).order(Integer.MIN_VALUE);
+    }
+}
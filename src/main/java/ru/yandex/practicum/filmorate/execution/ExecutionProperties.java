@@ -0,0 +1,30 @@
+package ru.yandex.practicum.filmorate.execution;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties("filmorate.execution")
+public class ExecutionProperties {
+    /**
+     * {@code sync} serves every request on the shared Tomcat pool, {@code bulkhead} additionally caps
+     * concurrent requests per first path segment so a burst on one endpoint cannot occupy the whole pool.
+     */
+    private Mode mode = Mode.SYNC;
+
+    /**
+     * Concurrent request limits keyed by the first path segment, e.g. {@code films}; missing keys are unlimited.
+     */
+    private Map<String, Integer> bulkheads = new LinkedHashMap<>();
+
+    private Duration acquireTimeout = Duration.ofMillis(100);
+
+    public enum Mode {
+        SYNC,
+        BULKHEAD
+    }
+}
@@ -0,0 +1,49 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+@Aspect
+@Component
+public class LayerTimingAspect {
+    private final MeterRegistry registry;
+
+    public LayerTimingAspect(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Around("execution(* ru.yandex.practicum.filmorate.storage.film.FilmStorage.*(..))" +
+            " || execution(* ru.yandex.practicum.filmorate.storage.user.UserStorage.*(..))" +
+            " || execution(* ru.yandex.practicum.filmorate.storage.genre.GenreStorage.*(..))" +
+            " || execution(* ru.yandex.practicum.filmorate.storage.mpa.MpaStorage.*(..))")
+    public Object timeStorage(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time("filmorate.storage", joinPoint);
+    }
+
+    @Around("within(ru.yandex.practicum.filmorate.service..*)" +
+            " && @within(org.springframework.stereotype.Service) && execution(public * *(..))")
+    public Object timeService(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time("filmorate.service", joinPoint);
+    }
+
+    private Object time(String name, ProceedingJoinPoint joinPoint) throws Throwable {
+        Timer.Sample sample = Timer.start(registry);
+        String exception = "none";
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable e) {
+            exception = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            sample.stop(Timer.builder(name)
+                    .tag("class", joinPoint.getTarget().getClass().getSimpleName())
+                    .tag("method", joinPoint.getSignature().getName())
+                    .tag("exception", exception)
+                    .register(registry));
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+@Slf4j
+@Component
+public class SqlQueryCountInterceptor implements HandlerInterceptor {
+    private final SqlQueryCounter counter;
+    private final MeterRegistry registry;
+    private final int warnThreshold;
+
+    public SqlQueryCountInterceptor(SqlQueryCounter counter, MeterRegistry registry,
+                                    @Value("${filmorate.metrics.sql-queries-warn-threshold:50}") int warnThreshold) {
+        this.counter = counter;
+        this.registry = registry;
+        this.warnThreshold = warnThreshold;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        counter.start();
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        int queries = counter.stop();
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern == null ? "UNKNOWN" : pattern.toString();
+        DistributionSummary.builder("filmorate.http.sql.queries")
+                .tag("method", request.getMethod())
+                .tag("uri", uri)
+                .register(registry)
+                .record(queries);
+        if (queries > warnThreshold) {
+            log.warn("{} {} ran {} SQL queries", request.getMethod(), request.getRequestURI(), queries);
+        }
+    }
+}
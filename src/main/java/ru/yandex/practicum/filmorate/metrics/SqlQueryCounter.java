@@ -0,0 +1,41 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Before;
+import org.springframework.stereotype.Component;
+
+@Aspect
+@Component
+public class SqlQueryCounter {
+    private static final ThreadLocal<int[]> CURRENT = new ThreadLocal<>();
+
+    private final Counter total;
+
+    public SqlQueryCounter(MeterRegistry registry) {
+        this.total = Counter.builder("filmorate.sql.queries").register(registry);
+    }
+
+    @Before("execution(public * org.springframework.jdbc.core.JdbcTemplate.query*(..))" +
+            " || execution(public * org.springframework.jdbc.core.JdbcTemplate.update(..))" +
+            " || execution(public * org.springframework.jdbc.core.JdbcTemplate.batchUpdate(..))" +
+            " || execution(public * org.springframework.jdbc.core.JdbcTemplate.execute(String))")
+    public void count() {
+        total.increment();
+        int[] count = CURRENT.get();
+        if (count != null) {
+            count[0]++;
+        }
+    }
+
+    public void start() {
+        CURRENT.set(new int[1]);
+    }
+
+    public int stop() {
+        int[] count = CURRENT.get();
+        CURRENT.remove();
+        return count == null ? 0 : count[0];
+    }
+}
@@ -19,6 +19,8 @@ import java.util.Set;
 public class Film {
     int id;
 
+    Integer version;
+
     @NotBlank(message = "Name may not be blank")
     String name;
 
@@ -0,0 +1,20 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Value;
+
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@Value
+public class FilmFacets {
+    int filmId;
+    int likes;
+    int year;
+    int mpaId;
+    Set<Integer> genreIds;
+
+    public static FilmFacets of(Film film) {
+        return new FilmFacets(film.getId(), film.getLikes().size(), film.getReleaseDate().getYear(),
+                film.getMpa().getId(), film.getGenres().stream().map(Genre::getId).collect(Collectors.toSet()));
+    }
+}
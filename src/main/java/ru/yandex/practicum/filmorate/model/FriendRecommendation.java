@@ -0,0 +1,9 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Value;
+
+@Value
+public class FriendRecommendation {
+    User user;
+    int mutualFriends;
+}
@@ -17,6 +17,8 @@ import java.util.Set;
 public class User {
     int id;
 
+    Integer version;
+
     @NotBlank
     @Email
     String email;
@@ -33,8 +35,10 @@ public class User {
     Set<Integer> friends;
 
     @Builder
-    public User(int id, String email, String login, String name, LocalDate birthday, Set<Integer> friends) {
+    public User(int id, Integer version, String email, String login, String name, LocalDate birthday,
+                Set<Integer> friends) {
         this.id = id;
+        this.version = version;
         this.email = email;
         this.login = login;
         if (name == null || name.isBlank()) {
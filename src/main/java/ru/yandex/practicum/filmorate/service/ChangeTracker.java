@@ -0,0 +1,40 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component
+public class ChangeTracker {
+    public enum Region {
+        FILMS,
+        USERS
+    }
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final Map<Region, AtomicLong> versions = new EnumMap<>(Region.class);
+
+    public ChangeTracker() {
+        for (Region region : Region.values()) {
+            versions.put(region, new AtomicLong());
+        }
+    }
+
+    public long version(Region region) {
+        return versions.get(region).get();
+    }
+
+    public void changed(Region region) {
+        versions.get(region).incrementAndGet();
+    }
+
+    public String etag(Region region) {
+        return etag(region, version(region));
+    }
+
+    public String etag(Region region, long version) {
+        return "\"" + epoch + "-" + region.name().toLowerCase() + "-" + version + "\"";
+    }
+}
@@ -0,0 +1,234 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Inverted index over film titles and descriptions: term to film to term frequency, per field.
+ * Every query term must match, the last one as a prefix so that partially typed words are found.
+ * Relevance is a BM25-style score, multiplied by a boost that grows with the logarithm of the film's likes.
+ */
+@Component
+public class FilmSearchIndex {
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final Map<SearchField, Double> FIELD_WEIGHTS = Map.of(SearchField.TITLE, 2.0,
+            SearchField.DESCRIPTION, 1.0);
+
+    private final FilmStorage storage;
+    private final PopularityIndex popularityIndex;
+    private final double likeWeight;
+    private final Map<Integer, Map<SearchField, Map<String, Integer>>> documents = new ConcurrentHashMap<>();
+    private final Map<SearchField, Postings> postings = new EnumMap<>(SearchField.class);
+
+    public FilmSearchIndex(@Qualifier("filmDbStorage") FilmStorage storage,
+                           PopularityIndex popularityIndex,
+                           @Value("${filmorate.search.like-weight:0.1}") double likeWeight) {
+        this.storage = storage;
+        this.popularityIndex = popularityIndex;
+        this.likeWeight = likeWeight;
+        for (SearchField field : SearchField.values()) {
+            postings.put(field, new Postings());
+        }
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        documents.clear();
+        postings.values().forEach(Postings::clear);
+        storage.getAll().forEach(this::index);
+    }
+
+    public void index(Film film) {
+        Map<SearchField, Map<String, Integer>> terms = new EnumMap<>(SearchField.class);
+        terms.put(SearchField.TITLE, termFrequencies(film.getName()));
+        terms.put(SearchField.DESCRIPTION, termFrequencies(film.getDescription()));
+        documents.compute(film.getId(), (id, old) -> {
+            if (old != null) {
+                old.forEach((field, frequencies) -> postings.get(field).remove(id, frequencies));
+            }
+            terms.forEach((field, frequencies) -> postings.get(field).add(id, frequencies));
+            return terms;
+        });
+    }
+
+    public List<Integer> search(String query, Set<SearchField> fields, int count) {
+        List<String> terms = tokenize(query);
+        if (terms.isEmpty()) {
+            return List.of();
+        }
+        // the most selective term is looked up in the postings, the others only checked on its matches
+        int rarest = 0;
+        long rarestFrequency = Long.MAX_VALUE;
+        for (int i = 0; i < terms.size(); i++) {
+            boolean isPrefix = i == terms.size() - 1;
+            long frequency = 0;
+            for (SearchField field : fields) {
+                frequency += postings.get(field).documentFrequency(terms.get(i), isPrefix);
+            }
+            if (frequency < rarestFrequency) {
+                rarest = i;
+                rarestFrequency = frequency;
+            }
+        }
+        if (rarestFrequency == 0) {
+            return List.of();
+        }
+
+        Map<Integer, Double> scores = new HashMap<>();
+        for (SearchField field : fields) {
+            postings.get(field).score(terms.get(rarest), rarest == terms.size() - 1, FIELD_WEIGHTS.get(field))
+                    .forEach((filmId, score) -> scores.merge(filmId, score, Double::sum));
+        }
+        for (int i = 0; i < terms.size() && !scores.isEmpty(); i++) {
+            if (i == rarest) {
+                continue;
+            }
+            String term = terms.get(i);
+            boolean isPrefix = i == terms.size() - 1;
+            scores.entrySet().removeIf(entry -> {
+                Map<SearchField, Map<String, Integer>> document = documents.get(entry.getKey());
+                if (document == null) {
+                    // postings are added inside documents.compute(), before the document itself is visible
+                    return true;
+                }
+                double termScore = 0;
+                for (SearchField field : fields) {
+                    termScore += postings.get(field).score(entry.getKey(), document.get(field), term, isPrefix,
+                            FIELD_WEIGHTS.get(field));
+                }
+                entry.setValue(entry.getValue() + termScore);
+                return termScore == 0;
+            });
+        }
+        return scores.entrySet().stream()
+                .map(entry -> Map.entry(entry.getKey(),
+                        entry.getValue() * (1 + likeWeight * Math.log1p(popularityIndex.getLikes(entry.getKey())))))
+                .sorted(Map.Entry.<Integer, Double>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(count)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        StringBuilder token = new StringBuilder();
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                token.append(c == 'ё' || c == 'Ё' ? 'е' : Character.toLowerCase(c));
+            } else if (token.length() > 0) {
+                tokens.add(token.toString());
+                token.setLength(0);
+            }
+        }
+        return tokens;
+    }
+
+    private static Map<String, Integer> termFrequencies(String text) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (String token : tokenize(text)) {
+            frequencies.merge(token, 1, Integer::sum);
+        }
+        return frequencies;
+    }
+
+    private static class Postings {
+        private final NavigableMap<String, Map<Integer, Integer>> terms = new ConcurrentSkipListMap<>();
+        private final Map<Integer, Integer> lengths = new ConcurrentHashMap<>();
+        private final AtomicLong totalLength = new AtomicLong();
+
+        void add(int filmId, Map<String, Integer> frequencies) {
+            frequencies.forEach((term, frequency) -> terms.computeIfAbsent(term, key -> new ConcurrentHashMap<>())
+                    .put(filmId, frequency));
+            int length = frequencies.values().stream().mapToInt(Integer::intValue).sum();
+            lengths.put(filmId, length);
+            totalLength.addAndGet(length);
+        }
+
+        void remove(int filmId, Map<String, Integer> frequencies) {
+            frequencies.keySet().forEach(term -> terms.computeIfPresent(term, (key, films) -> {
+                films.remove(filmId);
+                return films.isEmpty() ? null : films;
+            }));
+            Integer length = lengths.remove(filmId);
+            if (length != null) {
+                totalLength.addAndGet(-length);
+            }
+        }
+
+        long documentFrequency(String term, boolean isPrefix) {
+            if (!isPrefix) {
+                Map<Integer, Integer> films = terms.get(term);
+                return films == null ? 0 : films.size();
+            }
+            return matching(term).values().stream().mapToLong(Map::size).sum();
+        }
+
+        Map<Integer, Double> score(String term, boolean isPrefix, double weight) {
+            Map<Integer, Double> scores = new HashMap<>();
+            Map<Integer, Integer> exact = terms.get(term);
+            Map<String, Map<Integer, Integer>> matches = isPrefix
+                    ? matching(term)
+                    : exact == null ? Map.of() : Map.of(term, exact);
+            for (Map<Integer, Integer> films : matches.values()) {
+                films.forEach((filmId, frequency) ->
+                        scores.merge(filmId, score(filmId, films.size(), frequency, weight), Math::max));
+            }
+            return scores;
+        }
+
+        double score(int filmId, Map<String, Integer> document, String term, boolean isPrefix, double weight) {
+            if (document == null) {
+                return 0;
+            }
+            double best = 0;
+            for (Map.Entry<String, Integer> entry : document.entrySet()) {
+                if (isPrefix ? entry.getKey().startsWith(term) : entry.getKey().equals(term)) {
+                    Map<Integer, Integer> films = terms.get(entry.getKey());
+                    int documentFrequency = films == null ? 1 : films.size();
+                    best = Math.max(best, score(filmId, documentFrequency, entry.getValue(), weight));
+                }
+            }
+            return best;
+        }
+
+        private double score(int filmId, int documentFrequency, int frequency, double weight) {
+            int documentCount = Math.max(lengths.size(), 1);
+            double averageLength = Math.max((double) totalLength.get() / documentCount, 1);
+            double idf = Math.log(1 + (documentCount - documentFrequency + 0.5) / (documentFrequency + 0.5));
+            double length = lengths.getOrDefault(filmId, 0);
+            return weight * idf * frequency * (K1 + 1) / (frequency + K1 * (1 - B + B * length / averageLength));
+        }
+
+        private Map<String, Map<Integer, Integer>> matching(String prefix) {
+            return terms.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+        }
+
+        void clear() {
+            terms.clear();
+            lengths.clear();
+            totalLength.set(0);
+        }
+    }
+}
@@ -2,66 +2,172 @@ package ru.yandex.practicum.filmorate.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.Value;
+import lombok.experimental.NonFinal;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
-import java.util.Comparator;
+import java.time.Duration;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
+import static ru.yandex.practicum.filmorate.service.Retries.withRetry;
+
 @Value
+@NonFinal
 @RequiredArgsConstructor
 @Service
 public class FilmService {
+    public static final int MAX_PAGE_SIZE = 1000;
+    public static final int MAX_RECOMMENDATIONS = 100;
+    public static final int MAX_SEARCH_RESULTS = 100;
+
     @Qualifier("filmDbStorage")
     FilmStorage storage;
 
     @Qualifier("userDbStorage")
     UserStorage userStorage;
 
+    PopularityIndex popularityIndex;
+
+    LikeWriteBehind likeWriteBehind;
+
+    ChangeTracker changeTracker;
+
+    LikeMatrix likeMatrix;
+
+    TrendingIndex trendingIndex;
+
+    FilmSearchIndex searchIndex;
+
     public List<Film> getAll() {
-        return storage.getAll();
+        return likeWriteBehind.overlay(storage.getAll());
+    }
+
+    public List<Film> getPage(int afterId, int limit) {
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            throw new ValidationException("limit", String.format("Limit must be between 1 and %d", MAX_PAGE_SIZE));
+        }
+        return likeWriteBehind.overlay(storage.getPage(afterId, limit));
     }
 
     public Film getById(int id) {
-        return storage.getById(id);
+        return likeWriteBehind.overlay(storage.getById(id));
     }
 
     public Film add(Film film) {
-        return storage.add(film);
+        Film added = withRetry(() -> storage.add(film));
+        popularityIndex.update(added);
+        likeMatrix.replaceFilmLikes(added.getId(), added.getLikes());
+        added.getLikes().forEach(userId -> trendingIndex.like(added.getId(), userId));
+        searchIndex.index(added);
+        changeTracker.changed(ChangeTracker.Region.FILMS);
+        return added;
     }
 
     public Film update(Film film) {
-        return storage.update(film);
+        likeWriteBehind.flush();
+        Film updated = withRetry(() -> storage.update(film));
+        popularityIndex.update(updated);
+        for (int userId : updated.getLikes()) {
+            if (!likeMatrix.contains(updated.getId(), userId)) {
+                trendingIndex.like(updated.getId(), userId);
+            }
+        }
+        trendingIndex.retainLikes(updated.getId(), updated.getLikes());
+        likeMatrix.replaceFilmLikes(updated.getId(), updated.getLikes());
+        searchIndex.index(updated);
+        changeTracker.changed(ChangeTracker.Region.FILMS);
+        return updated;
     }
 
     public boolean putLike(int id, int userId) {
-        userStorage.getById(userId);
-        Film film = storage.getById(id);
-        boolean isAdded = film.getLikes().add(userId);
+        checkUserExists(userId);
+        boolean isAdded = likeWriteBehind.isEnabled()
+                ? likeWriteBehind.submit(checkFilmIndexed(id), userId, true)
+                : withRetry(() -> storage.addLike(id, userId));
         if (isAdded) {
-            storage.update(film);
+            popularityIndex.adjust(id, 1);
+            likeMatrix.like(id, userId);
+            trendingIndex.like(id, userId);
+            changeTracker.changed(ChangeTracker.Region.FILMS);
         }
         return isAdded;
     }
 
     public boolean deleteLike(int id, int userId) {
-        userStorage.getById(userId);
-        Film film = storage.getById(id);
-        boolean isRemoved = film.getLikes().remove(userId);
+        checkUserExists(userId);
+        boolean isRemoved = likeWriteBehind.isEnabled()
+                ? likeWriteBehind.submit(checkFilmIndexed(id), userId, false)
+                : withRetry(() -> storage.removeLike(id, userId));
         if (isRemoved) {
-            storage.update(film);
+            popularityIndex.adjust(id, -1);
+            likeMatrix.unlike(id, userId);
+            trendingIndex.unlike(id, userId);
+            changeTracker.changed(ChangeTracker.Region.FILMS);
         }
         return isRemoved;
     }
 
     public List<Film> getPopular(int count) {
-        return storage.getAll().stream()
-                .sorted(Comparator.comparingInt(f -> f.getLikes().size() * (-1)))
-                .limit(count)
+        return getPopular(count, null, null, null);
+    }
+
+    public List<Film> getPopular(int count, Integer genreId, Integer year, Integer mpaId) {
+        return getInOrder(popularityIndex.getTop(count, genreId, year, mpaId));
+    }
+
+    public List<Film> getTrending(Duration window, int count) {
+        return getInOrder(trendingIndex.getTop(window, count));
+    }
+
+    public List<Film> search(String query, Collection<String> by, int count) {
+        if (query == null || query.isBlank()) {
+            throw new ValidationException("query", "Query may not be blank");
+        }
+        if (count <= 0 || count > MAX_SEARCH_RESULTS) {
+            throw new ValidationException("count",
+                    String.format("Count must be between 1 and %d", MAX_SEARCH_RESULTS));
+        }
+        return getInOrder(searchIndex.search(query, SearchField.parse(by), count));
+    }
+
+    public List<Film> getRecommendations(int userId, int count) {
+        if (count <= 0 || count > MAX_RECOMMENDATIONS) {
+            throw new ValidationException("count",
+                    String.format("Count must be between 1 and %d", MAX_RECOMMENDATIONS));
+        }
+        checkUserExists(userId);
+        return getInOrder(likeMatrix.recommend(userId, count));
+    }
+
+    private List<Film> getInOrder(List<Integer> ids) {
+        Map<Integer, Film> films = likeWriteBehind.overlay(storage.getByIds(ids)).stream()
+                .collect(Collectors.toMap(Film::getId, Function.identity()));
+        return ids.stream()
+                .map(films::get)
+                .filter(Objects::nonNull)
                 .collect(Collectors.toList());
     }
+
+    private int checkFilmIndexed(int id) {
+        if (!popularityIndex.contains(id)) {
+            throw new NotFoundException(String.format("Film with id=%d not found", id));
+        }
+        return id;
+    }
+
+    private void checkUserExists(int userId) {
+        if (userStorage.getByIds(List.of(userId), false).isEmpty()) {
+            throw new NotFoundException(String.format("User with id=%d not found", userId));
+        }
+    }
 }
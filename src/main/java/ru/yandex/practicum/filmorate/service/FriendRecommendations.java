@@ -0,0 +1,101 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.FriendRecommendation;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Friend-of-friend candidates per user, cached until a friendship that can change them is written.
+ * A user's candidates depend on their own friends and their friends' friends, so a change to user X's
+ * friendships invalidates X and every user who has X as a friend.
+ * The cache keeps the least recently used users out once it is full. Candidates are loaded outside its lock and
+ * are not stored if any invalidation happened meanwhile, as they may have been read before that change.
+ */
+@Component
+public class FriendRecommendations {
+    public static final int MAX_COUNT = 100;
+
+    private final UserStorage storage;
+    private final int fanOutCap;
+    private final Map<Integer, Map<Integer, Integer>> cache;
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public FriendRecommendations(@Qualifier("userDbStorage") UserStorage storage,
+                                 @Value("${filmorate.recommendations.friends.fan-out-cap:1000}") int fanOutCap,
+                                 @Value("${filmorate.recommendations.friends.cache-size:10000}") int cacheSize) {
+        this.storage = storage;
+        this.fanOutCap = fanOutCap;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Map<Integer, Integer>> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    public List<FriendRecommendation> recommend(int userId, int count) {
+        if (count <= 0 || count > MAX_COUNT) {
+            throw new ValidationException("count", String.format("Count must be between 1 and %d", MAX_COUNT));
+        }
+        Map<Integer, Integer> candidates = candidates(userId);
+        List<Integer> ids = candidates.keySet().stream()
+                .limit(count)
+                .collect(Collectors.toList());
+        Map<Integer, User> users = storage.getByIds(ids, false).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        List<FriendRecommendation> recommendations = new ArrayList<>(ids.size());
+        for (int id : ids) {
+            User user = users.get(id);
+            if (user != null) {
+                recommendations.add(new FriendRecommendation(user, candidates.get(id)));
+            }
+        }
+        return recommendations;
+    }
+
+    public void invalidate(int userId) {
+        List<Integer> affected = storage.getIdsWithFriend(userId);
+        synchronized (cache) {
+            invalidations.incrementAndGet();
+            cache.remove(userId);
+            affected.forEach(cache::remove);
+        }
+    }
+
+    public void clear() {
+        synchronized (cache) {
+            invalidations.incrementAndGet();
+            cache.clear();
+        }
+    }
+
+    private Map<Integer, Integer> candidates(int userId) {
+        long seen;
+        synchronized (cache) {
+            Map<Integer, Integer> cached = cache.get(userId);
+            if (cached != null) {
+                return cached;
+            }
+            seen = invalidations.get();
+        }
+        Map<Integer, Integer> loaded = storage.getFriendCandidates(userId, fanOutCap, MAX_COUNT);
+        synchronized (cache) {
+            if (invalidations.get() == seen) {
+                cache.put(userId, loaded);
+            }
+        }
+        return loaded;
+    }
+}
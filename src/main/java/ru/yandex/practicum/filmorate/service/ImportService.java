@@ -0,0 +1,308 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.ImportResult;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.genre.GenreStorage;
+import ru.yandex.practicum.filmorate.storage.mpa.MpaStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static ru.yandex.practicum.filmorate.service.Retries.withRetry;
+
+/**
+ * Loads records from NDJSON or CSV streams. Records are parsed one at a time, invalid ones are reported
+ * and skipped, and valid ones are written in chunks, each chunk in its own transaction.
+ */
+@Slf4j
+@Service
+public class ImportService {
+    private static final int MAX_ERRORS = 100;
+
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+    private final GenreStorage genreStorage;
+    private final MpaStorage mpaStorage;
+    private final PopularityIndex popularityIndex;
+    private final ChangeTracker changeTracker;
+    private final FriendRecommendations friendRecommendations;
+    private final LikeMatrix likeMatrix;
+    private final LikeWriteBehind likeWriteBehind;
+    private final TrendingIndex trendingIndex;
+    private final FilmSearchIndex searchIndex;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final CsvMapper csvMapper = CsvMapper.builder().findAndAddModules().build();
+    private final int chunkSize;
+
+    public ImportService(@Qualifier("filmDbStorage") FilmStorage filmStorage,
+                         @Qualifier("userDbStorage") UserStorage userStorage,
+                         GenreStorage genreStorage,
+                         MpaStorage mpaStorage,
+                         PopularityIndex popularityIndex,
+                         ChangeTracker changeTracker,
+                         FriendRecommendations friendRecommendations,
+                         LikeMatrix likeMatrix,
+                         LikeWriteBehind likeWriteBehind,
+                         TrendingIndex trendingIndex,
+                         FilmSearchIndex searchIndex,
+                         Validator validator,
+                         ObjectMapper objectMapper,
+                         @Value("${filmorate.import.chunk-size:5000}") int chunkSize) {
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+        this.genreStorage = genreStorage;
+        this.mpaStorage = mpaStorage;
+        this.popularityIndex = popularityIndex;
+        this.changeTracker = changeTracker;
+        this.friendRecommendations = friendRecommendations;
+        this.likeMatrix = likeMatrix;
+        this.likeWriteBehind = likeWriteBehind;
+        this.trendingIndex = trendingIndex;
+        this.searchIndex = searchIndex;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.chunkSize = chunkSize;
+    }
+
+    public ImportResult importFilms(InputStream in, ImportFormat format) {
+        if (format != ImportFormat.NDJSON) {
+            throw new ValidationException("format", "Films can only be imported as NDJSON");
+        }
+        ImportResult result = importRecords(in, format, Film.class, this::checkFilm, (chunk, progress) -> {
+            List<Film> films = withExistingUsers(chunk, Film::getLikes,
+                    film -> String.format("Film '%s'", film.getName()), progress);
+            List<Integer> ids = withRetry(() -> filmStorage.addAll(films));
+            for (int i = 0; i < ids.size(); i++) {
+                Film imported = films.get(i).toBuilder().id(ids.get(i)).build();
+                popularityIndex.update(imported);
+                likeMatrix.replaceFilmLikes(imported.getId(), imported.getLikes());
+                imported.getLikes().forEach(userId -> trendingIndex.like(imported.getId(), userId));
+                searchIndex.index(imported);
+            }
+            progress.imported(ids.size());
+        });
+        changeTracker.changed(ChangeTracker.Region.FILMS);
+        return result;
+    }
+
+    public ImportResult importUsers(InputStream in, ImportFormat format) {
+        ImportResult result = importRecords(in, format, User.class, this::violations, (chunk, progress) -> {
+            List<User> users = withExistingUsers(chunk, User::getFriends,
+                    user -> String.format("User '%s'", user.getLogin()), progress);
+            progress.imported(withRetry(() -> userStorage.addAll(users)).size());
+        });
+        friendRecommendations.clear();
+        changeTracker.changed(ChangeTracker.Region.USERS);
+        return result;
+    }
+
+    public ImportResult importLikes(InputStream in, ImportFormat format) {
+        likeWriteBehind.flush();
+        ImportResult result = importRecords(in, format, Like.class, like -> null, (likes, progress) -> {
+            Set<Integer> films = filmStorage.getExistingIds(likes.stream().map(Like::getFilmId)
+                    .collect(Collectors.toSet()));
+            Set<Integer> users = userStorage.getExistingIds(likes.stream().map(Like::getUserId)
+                    .collect(Collectors.toSet()));
+            List<Like> valid = new ArrayList<>(likes.size());
+            for (Like like : likes) {
+                if (films.contains(like.getFilmId()) && users.contains(like.getUserId())) {
+                    valid.add(like);
+                } else {
+                    progress.reject(String.format("Like of film id=%d by user id=%d refers to a missing entity",
+                            like.getFilmId(), like.getUserId()));
+                }
+            }
+            List<Like> inserted = withRetry(() -> filmStorage.applyLikes(valid, List.of()));
+            for (Like like : inserted) {
+                // a like already in the matrix was accepted by write-behind and counted when it was submitted
+                if (likeMatrix.like(like.getFilmId(), like.getUserId())) {
+                    popularityIndex.adjust(like.getFilmId(), 1);
+                    trendingIndex.like(like.getFilmId(), like.getUserId());
+                }
+            }
+            progress.imported(valid.size());
+        });
+        changeTracker.changed(ChangeTracker.Region.FILMS);
+        return result;
+    }
+
+    public ImportResult importFriendships(InputStream in, ImportFormat format) {
+        ImportResult result = importRecords(in, format, Friendship.class, friendship -> null,
+                (friendships, progress) -> {
+                    Set<Integer> users = userStorage.getExistingIds(friendships.stream()
+                            .flatMap(friendship -> Set.of(friendship.getUserId(), friendship.getFriendId()).stream())
+                            .collect(Collectors.toSet()));
+                    List<Friendship> valid = new ArrayList<>(friendships.size());
+                    for (Friendship friendship : friendships) {
+                        if (users.contains(friendship.getUserId()) && users.contains(friendship.getFriendId())) {
+                            valid.add(friendship);
+                        } else {
+                            progress.reject(String.format(
+                                    "Friendship of user id=%d with user id=%d refers to a missing user",
+                                    friendship.getUserId(), friendship.getFriendId()));
+                        }
+                    }
+                    withRetry(() -> userStorage.addFriendships(valid));
+                    progress.imported(valid.size());
+                });
+        friendRecommendations.clear();
+        changeTracker.changed(ChangeTracker.Region.USERS);
+        return result;
+    }
+
+    private <T> ImportResult importRecords(InputStream in, ImportFormat format, Class<T> type,
+                                           Function<T, String> check, BiConsumer<List<T>, Progress> writer) {
+        Progress progress = new Progress();
+        List<T> chunk = new ArrayList<>(chunkSize);
+        try (MappingIterator<T> records = reader(format, type).readValues(in)) {
+            while (records.hasNextValue()) {
+                T record;
+                try {
+                    record = records.nextValue();
+                } catch (JsonParseException e) {
+                    progress.reject(String.format("Line %d: malformed input, import stopped: %s",
+                            e.getLocation().getLineNr(), e.getOriginalMessage()));
+                    break;
+                } catch (JsonMappingException e) {
+                    progress.reject(String.format("Line %d: %s", lineOf(e), e.getOriginalMessage()));
+                    continue;
+                }
+                String error = check.apply(record);
+                if (error != null) {
+                    progress.reject(String.format("Line %d: %s", records.getCurrentLocation().getLineNr(), error));
+                    continue;
+                }
+                chunk.add(record);
+                if (chunk.size() >= chunkSize) {
+                    writeChunk(chunk, writer, progress);
+                }
+            }
+        } catch (IOException e) {
+            progress.reject("Failed to read input: " + e.getMessage());
+        }
+        if (!chunk.isEmpty()) {
+            writeChunk(chunk, writer, progress);
+        }
+        log.info("Imported {} {} records, rejected {}", progress.imported, type.getSimpleName(), progress.rejected);
+        return new ImportResult(progress.imported, progress.rejected, progress.errors);
+    }
+
+    private <T> void writeChunk(List<T> chunk, BiConsumer<List<T>, Progress> writer, Progress progress) {
+        try {
+            writer.accept(chunk, progress);
+        } catch (DataIntegrityViolationException e) {
+            progress.rejected += chunk.size();
+            progress.error(String.format("Chunk of %d records rejected: %s", chunk.size(),
+                    e.getMostSpecificCause().getMessage()));
+        }
+        chunk.clear();
+    }
+
+    private <T> List<T> withExistingUsers(List<T> records, Function<T, Set<Integer>> userIds,
+                                          Function<T, String> describe, Progress progress) {
+        Set<Integer> existing = userStorage.getExistingIds(records.stream()
+                .flatMap(record -> userIds.apply(record).stream())
+                .collect(Collectors.toSet()));
+        List<T> valid = new ArrayList<>(records.size());
+        for (T record : records) {
+            List<Integer> missing = userIds.apply(record).stream()
+                    .filter(id -> !existing.contains(id))
+                    .sorted()
+                    .collect(Collectors.toList());
+            if (missing.isEmpty()) {
+                valid.add(record);
+            } else {
+                progress.reject(String.format("%s refers to missing users %s", describe.apply(record), missing));
+            }
+        }
+        return valid;
+    }
+
+    private ObjectReader reader(ImportFormat format, Class<?> type) {
+        if (format == ImportFormat.CSV) {
+            return csvMapper.readerFor(type).with(CsvSchema.emptySchema().withHeader());
+        }
+        return objectMapper.readerFor(type);
+    }
+
+    private String checkFilm(Film film) {
+        String violations = violations(film);
+        if (violations != null) {
+            return violations;
+        }
+        try {
+            mpaStorage.getById(film.getMpa().getId());
+            for (Genre genre : film.getGenres()) {
+                genreStorage.getById(genre.getId());
+            }
+        } catch (NotFoundException e) {
+            return e.getMessage();
+        }
+        return null;
+    }
+
+    private <T> String violations(T record) {
+        Set<ConstraintViolation<T>> violations = validator.validate(record);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining(", "));
+    }
+
+    private static int lineOf(JsonMappingException e) {
+        return e.getLocation() == null ? -1 : e.getLocation().getLineNr();
+    }
+
+    private static class Progress {
+        int imported;
+        int rejected;
+        final List<String> errors = new ArrayList<>();
+
+        void imported(int count) {
+            imported += count;
+        }
+
+        void reject(String error) {
+            rejected++;
+            error(error);
+        }
+
+        void error(String error) {
+            if (errors.size() < MAX_ERRORS) {
+                errors.add(error);
+            }
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.graph.AdjacencyStore;
+
+import javax.annotation.PostConstruct;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * User to film likes as sorted int arrays with a film to user reverse index, for user-based
+ * collaborative filtering: films liked by the users most similar to a given one (Jaccard over like sets).
+ */
+@Component
+public class LikeMatrix {
+    private static final int PARALLEL_THRESHOLD = 10_000;
+
+    private final FilmStorage storage;
+    private final AdjacencyStore likes = new AdjacencyStore(true);
+    private final int neighbours;
+    private final int fanOutCap;
+
+    public LikeMatrix(@Qualifier("filmDbStorage") FilmStorage storage,
+                      @Value("${filmorate.recommendations.films.neighbours:50}") int neighbours,
+                      @Value("${filmorate.recommendations.films.fan-out-cap:1000}") int fanOutCap) {
+        this.storage = storage;
+        this.neighbours = neighbours;
+        this.fanOutCap = fanOutCap;
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        int[][] edges = {new int[1024], new int[1024]};
+        int[] size = new int[1];
+        storage.forEachLike((filmId, userId) -> {
+            if (size[0] == edges[0].length) {
+                edges[0] = Arrays.copyOf(edges[0], size[0] * 2);
+                edges[1] = Arrays.copyOf(edges[1], size[0] * 2);
+            }
+            edges[0][size[0]] = userId;
+            edges[1][size[0]] = filmId;
+            size[0]++;
+        });
+        likes.load(edges[0], edges[1], size[0]);
+    }
+
+    public boolean contains(int filmId, int userId) {
+        return likes.contains(userId, filmId);
+    }
+
+    public boolean like(int filmId, int userId) {
+        return likes.add(userId, filmId);
+    }
+
+    public void unlike(int filmId, int userId) {
+        likes.remove(userId, filmId);
+    }
+
+    public void replaceFilmLikes(int filmId, Collection<Integer> userIds) {
+        int[] current = likes.reverseNeighbours(filmId);
+        for (int userId : current) {
+            if (!userIds.contains(userId)) {
+                likes.remove(userId, filmId);
+            }
+        }
+        for (int userId : userIds) {
+            likes.add(userId, filmId);
+        }
+    }
+
+    public List<Integer> recommend(int userId, int count) {
+        int[] liked = likes.neighbours(userId);
+        if (liked.length == 0) {
+            return List.of();
+        }
+
+        // users sharing at least one film, with the size of the overlap; a film with more than fanOutCap likers
+        // contributes a random sample of them, seeded by the user so that their recommendations stay stable
+        SplittableRandom random = new SplittableRandom(userId);
+        int total = 0;
+        int[][] likers = new int[liked.length][];
+        for (int i = 0; i < liked.length; i++) {
+            likers[i] = likes.reverseNeighbours(liked[i]);
+            total += Math.min(likers[i].length, fanOutCap);
+        }
+        int[] coLikers = new int[total];
+        int size = 0;
+        for (int[] filmLikers : likers) {
+            if (filmLikers.length <= fanOutCap) {
+                System.arraycopy(filmLikers, 0, coLikers, size, filmLikers.length);
+                size += filmLikers.length;
+            } else {
+                for (int index : sample(filmLikers.length, fanOutCap, random)) {
+                    coLikers[size++] = filmLikers[index];
+                }
+            }
+        }
+        Arrays.sort(coLikers);
+        int[] candidates = new int[size];
+        int[] overlaps = new int[size];
+        int candidateCount = 0;
+        for (int from = 0; from < size; ) {
+            int to = from;
+            while (to < size && coLikers[to] == coLikers[from]) {
+                to++;
+            }
+            if (coLikers[from] != userId) {
+                candidates[candidateCount] = coLikers[from];
+                overlaps[candidateCount++] = to - from;
+            }
+            from = to;
+        }
+
+        // similarity in the high half so that sorting orders by it, user id in the low half
+        int n = candidateCount;
+        long[] scored = new long[n];
+        IntStream indexes = IntStream.range(0, n);
+        (n >= PARALLEL_THRESHOLD ? indexes.parallel() : indexes).forEach(i -> {
+            float similarity = (float) overlaps[i] / (liked.length + likes.degree(candidates[i]) - overlaps[i]);
+            scored[i] = ((long) Float.floatToIntBits(similarity) << 32) | (candidates[i] & 0xFFFFFFFFL);
+        });
+        if (n >= PARALLEL_THRESHOLD) {
+            Arrays.parallelSort(scored);
+        } else {
+            Arrays.sort(scored);
+        }
+
+        Map<Integer, Double> scores = new HashMap<>();
+        for (int i = n - 1; i >= Math.max(0, n - neighbours); i--) {
+            double similarity = Float.intBitsToFloat((int) (scored[i] >>> 32));
+            for (int filmId : likes.neighbours((int) scored[i])) {
+                if (Arrays.binarySearch(liked, filmId) < 0) {
+                    scores.merge(filmId, similarity, Double::sum);
+                }
+            }
+        }
+        return scores.entrySet().stream()
+                .sorted(Map.Entry.<Integer, Double>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(count)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
+
+    // Floyd's algorithm: k distinct indexes below n, each subset equally likely
+    private static Set<Integer> sample(int n, int k, SplittableRandom random) {
+        Set<Integer> indexes = new HashSet<>(k * 2);
+        for (int j = n - k; j < n; j++) {
+            int index = random.nextInt(j + 1);
+            indexes.add(indexes.contains(index) ? j : index);
+        }
+        return indexes;
+    }
+}
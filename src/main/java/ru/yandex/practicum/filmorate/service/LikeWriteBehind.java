@@ -0,0 +1,204 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Buffers like/unlike events and writes them to storage in batches.
+ * A pending entry exists only while its state differs from storage, so a like followed by an unlike cancels out
+ * unless the like is already being written, in which case the unlike is queued behind it.
+ * Whether a like exists is answered by {@link LikeMatrix}, which is updated as events are accepted,
+ * so submitting never waits for the database.
+ */
+@Slf4j
+@Component
+public class LikeWriteBehind {
+    private final FilmStorage storage;
+    private final LikeMatrix likeMatrix;
+    private final boolean enabled;
+    private final int batchSize;
+    private final Duration flushInterval;
+    private final Map<Integer, Map<Integer, Boolean>> pending = new ConcurrentHashMap<>();
+    private final Set<Like> inFlight = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final Lock flushLock = new ReentrantLock();
+    private ScheduledExecutorService executor;
+
+    public LikeWriteBehind(@Qualifier("filmDbStorage") FilmStorage storage,
+                           LikeMatrix likeMatrix,
+                           @Value("${filmorate.likes.write-behind.enabled:false}") boolean enabled,
+                           @Value("${filmorate.likes.write-behind.batch-size:500}") int batchSize,
+                           @Value("${filmorate.likes.write-behind.flush-interval:1s}") Duration flushInterval) {
+        this.storage = storage;
+        this.likeMatrix = likeMatrix;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.flushInterval = flushInterval;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (enabled) {
+            executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "like-write-behind");
+                thread.setDaemon(true);
+                return thread;
+            });
+            executor.scheduleWithFixedDelay(this::flush, flushInterval.toMillis(), flushInterval.toMillis(),
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (executor != null) {
+            executor.shutdown();
+            executor.awaitTermination(flushInterval.toMillis() * 2, TimeUnit.MILLISECONDS);
+        }
+        flush();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean submit(int filmId, int userId, boolean isLiked) {
+        boolean[] isChanged = new boolean[1];
+        pending.compute(filmId, (id, users) -> {
+            Map<Integer, Boolean> filmUsers = users == null ? new ConcurrentHashMap<>() : users;
+            Boolean pendingState = filmUsers.get(userId);
+            if (pendingState == null) {
+                isChanged[0] = likeMatrix.contains(filmId, userId) != isLiked;
+                if (isChanged[0]) {
+                    filmUsers.put(userId, isLiked);
+                    pendingCount.incrementAndGet();
+                }
+            } else if (pendingState != isLiked) {
+                isChanged[0] = true;
+                if (inFlight.contains(new Like(filmId, userId))) {
+                    filmUsers.put(userId, isLiked);
+                } else {
+                    filmUsers.remove(userId);
+                    pendingCount.decrementAndGet();
+                }
+            }
+            if (isChanged[0]) {
+                if (isLiked) {
+                    likeMatrix.like(filmId, userId);
+                } else {
+                    likeMatrix.unlike(filmId, userId);
+                }
+            }
+            return filmUsers.isEmpty() ? null : filmUsers;
+        });
+        if (pendingCount.get() >= batchSize && executor != null && flushRequested.compareAndSet(false, true)) {
+            executor.execute(this::flush);
+        }
+        return isChanged[0];
+    }
+
+    public int getPendingCount() {
+        return pendingCount.get();
+    }
+
+    public Film overlay(Film film) {
+        Map<Integer, Boolean> users = pending.get(film.getId());
+        if (users != null) {
+            users.forEach((userId, isLiked) -> {
+                if (isLiked) {
+                    film.getLikes().add(userId);
+                } else {
+                    film.getLikes().remove(userId);
+                }
+            });
+        }
+        return film;
+    }
+
+    public List<Film> overlay(List<Film> films) {
+        if (!pending.isEmpty()) {
+            films.forEach(this::overlay);
+        }
+        return films;
+    }
+
+    public void flush() {
+        flushLock.lock();
+        try {
+            flushRequested.set(false);
+            List<Like> added = new ArrayList<>();
+            List<Like> removed = new ArrayList<>();
+            do {
+                added.clear();
+                removed.clear();
+                collect(added, removed);
+                if (added.isEmpty() && removed.isEmpty()) {
+                    return;
+                }
+                storage.applyLikes(added, removed);
+                added.forEach(like -> release(like, true));
+                removed.forEach(like -> release(like, false));
+            } while (added.size() + removed.size() >= batchSize);
+        } catch (RuntimeException e) {
+            inFlight.clear();
+            log.warn("Failed to flush pending likes, will retry", e);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void collect(List<Like> added, List<Like> removed) {
+        for (Integer filmId : pending.keySet()) {
+            pending.computeIfPresent(filmId, (id, users) -> {
+                for (Map.Entry<Integer, Boolean> user : users.entrySet()) {
+                    if (added.size() + removed.size() >= batchSize) {
+                        break;
+                    }
+                    Like like = new Like(id, user.getKey());
+                    inFlight.add(like);
+                    if (user.getValue()) {
+                        added.add(like);
+                    } else {
+                        removed.add(like);
+                    }
+                }
+                return users;
+            });
+            if (added.size() + removed.size() >= batchSize) {
+                return;
+            }
+        }
+    }
+
+    private void release(Like like, boolean isLiked) {
+        pending.computeIfPresent(like.getFilmId(), (id, users) -> {
+            if (users.remove(like.getUserId(), isLiked)) {
+                pendingCount.decrementAndGet();
+            }
+            inFlight.remove(like);
+            return users.isEmpty() ? null : users;
+        });
+    }
+}
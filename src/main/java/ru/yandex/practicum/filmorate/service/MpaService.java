@@ -2,6 +2,7 @@ package ru.yandex.practicum.filmorate.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.Value;
+import lombok.experimental.NonFinal;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.model.Mpa;
 import ru.yandex.practicum.filmorate.storage.mpa.MpaStorage;
@@ -9,6 +10,7 @@ import ru.yandex.practicum.filmorate.storage.mpa.MpaStorage;
 import java.util.List;
 
 @Value
+@NonFinal
 @RequiredArgsConstructor
 @Service
 public class MpaService {
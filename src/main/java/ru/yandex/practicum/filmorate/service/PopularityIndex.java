@@ -0,0 +1,167 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.Value;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFacets;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Films ranked by like count, globally and per genre, release year and MPA rating.
+ * A filtered query walks the smallest ranking that matches one of its filters and checks the others
+ * against the film's facets, so it never touches films outside that ranking.
+ */
+@Component
+public class PopularityIndex {
+    private static final Comparator<Entry> ORDER = Comparator.comparingInt(Entry::getLikes).reversed()
+            .thenComparingInt(Entry::getFilmId);
+
+    private final FilmStorage storage;
+    private final Map<Integer, Entry> entries = new ConcurrentHashMap<>();
+    private final Ranking ranking = new Ranking();
+    private final Map<Integer, Ranking> byGenre = new ConcurrentHashMap<>();
+    private final Map<Integer, Ranking> byYear = new ConcurrentHashMap<>();
+    private final Map<Integer, Ranking> byMpa = new ConcurrentHashMap<>();
+
+    public PopularityIndex(@Qualifier("filmDbStorage") FilmStorage storage) {
+        this.storage = storage;
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        entries.clear();
+        ranking.clear();
+        byGenre.clear();
+        byYear.clear();
+        byMpa.clear();
+        storage.getFacets().forEach(this::update);
+    }
+
+    public void update(Film film) {
+        update(FilmFacets.of(film));
+    }
+
+    public void update(FilmFacets facets) {
+        entries.compute(facets.getFilmId(), (id, old) -> move(old, new Entry(facets.getLikes(), id, facets)));
+    }
+
+    public void adjust(int filmId, int delta) {
+        entries.compute(filmId, (id, old) -> move(old, old == null
+                ? new Entry(Math.max(delta, 0), id, null)
+                : new Entry(Math.max(old.getLikes() + delta, 0), id, old.getFacets())));
+    }
+
+    public boolean contains(int filmId) {
+        return entries.containsKey(filmId);
+    }
+
+    public int getLikes(int filmId) {
+        Entry entry = entries.get(filmId);
+        return entry == null ? 0 : entry.getLikes();
+    }
+
+    public List<Integer> getTop(int count) {
+        return getTop(count, null, null, null);
+    }
+
+    public List<Integer> getTop(int count, Integer genreId, Integer year, Integer mpaId) {
+        Ranking source = ranking;
+        if (genreId != null || year != null || mpaId != null) {
+            List<Ranking> candidates = new ArrayList<>(3);
+            if (genreId != null) {
+                candidates.add(byGenre.get(genreId));
+            }
+            if (year != null) {
+                candidates.add(byYear.get(year));
+            }
+            if (mpaId != null) {
+                candidates.add(byMpa.get(mpaId));
+            }
+            if (candidates.contains(null)) {
+                return List.of();
+            }
+            source = candidates.stream().min(Comparator.comparingInt(Ranking::size)).orElseThrow();
+        }
+        return source.entries.stream()
+                .filter(entry -> entry.matches(genreId, year, mpaId))
+                .limit(count)
+                .map(Entry::getFilmId)
+                .collect(Collectors.toList());
+    }
+
+    private Entry move(Entry oldEntry, Entry newEntry) {
+        if (oldEntry != null) {
+            forEachRanking(oldEntry, target -> target.remove(oldEntry));
+        }
+        forEachRanking(newEntry, target -> target.add(newEntry));
+        return newEntry;
+    }
+
+    private void forEachRanking(Entry entry, Consumer<Ranking> action) {
+        action.accept(ranking);
+        FilmFacets facets = entry.getFacets();
+        if (facets != null) {
+            for (int genreId : facets.getGenreIds()) {
+                action.accept(byGenre.computeIfAbsent(genreId, id -> new Ranking()));
+            }
+            action.accept(byYear.computeIfAbsent(facets.getYear(), id -> new Ranking()));
+            action.accept(byMpa.computeIfAbsent(facets.getMpaId(), id -> new Ranking()));
+        }
+    }
+
+    @Value
+    private static class Entry {
+        int likes;
+        int filmId;
+        FilmFacets facets;
+
+        boolean matches(Integer genreId, Integer year, Integer mpaId) {
+            if (genreId == null && year == null && mpaId == null) {
+                return true;
+            }
+            return facets != null
+                    && (genreId == null || facets.getGenreIds().contains(genreId))
+                    && (year == null || facets.getYear() == year)
+                    && (mpaId == null || facets.getMpaId() == mpaId);
+        }
+    }
+
+    private static class Ranking {
+        private final NavigableSet<Entry> entries = new ConcurrentSkipListSet<>(ORDER);
+        private final AtomicInteger size = new AtomicInteger();
+
+        void add(Entry entry) {
+            if (entries.add(entry)) {
+                size.incrementAndGet();
+            }
+        }
+
+        void remove(Entry entry) {
+            if (entries.remove(entry)) {
+                size.decrementAndGet();
+            }
+        }
+
+        void clear() {
+            entries.clear();
+            size.set(0);
+        }
+
+        int size() {
+            return size.get();
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package ru.yandex.practicum.filmorate.service;
+
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+
+public enum SearchField {
+    TITLE,
+    DESCRIPTION;
+
+    public static Set<SearchField> parse(Collection<String> names) {
+        Set<SearchField> fields = EnumSet.noneOf(SearchField.class);
+        for (String name : names) {
+            try {
+                fields.add(valueOf(name.trim().toUpperCase(Locale.ROOT)));
+            } catch (IllegalArgumentException e) {
+                throw new ValidationException("by", String.format("Unknown search field '%s'", name));
+            }
+        }
+        if (fields.isEmpty()) {
+            throw new ValidationException("by", "At least one search field is required");
+        }
+        return fields;
+    }
+}
@@ -0,0 +1,258 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * Likes per film made within a few fixed sliding windows, counted in time slots.
+ * Every window keeps running totals and a ranking that are updated when a like is recorded and when compaction
+ * moves the window past a slot, so a trending query reads the head of a ranking instead of summing slots.
+ * An unlike takes the like back from the slot it was made in and is ignored once that slot has left every window,
+ * so the live counts match a rebuild from the stored like times.
+ */
+@Component
+public class TrendingIndex {
+    private static final Comparator<Entry> ORDER = Comparator.comparingInt(Entry::getLikes).reversed()
+            .thenComparingInt(Entry::getFilmId);
+
+    private final FilmStorage storage;
+    private final Clock clock;
+    private final long slotMillis;
+    private final Duration compactionInterval;
+    private final List<Window> windows;
+    private final Map<Long, Map<Integer, Integer>> slots = new ConcurrentHashMap<>();
+    // slot of every like still inside the longest window, by film and user
+    private final Map<Integer, Map<Integer, Long>> likedIn = new ConcurrentHashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile long currentSlot;
+    private ScheduledExecutorService executor;
+
+    @Autowired
+    public TrendingIndex(@Qualifier("filmDbStorage") FilmStorage storage,
+                         @Value("${filmorate.trending.slot:1h}") Duration slot,
+                         @Value("${filmorate.trending.windows:1h,24h,7d}") List<Duration> windows,
+                         @Value("${filmorate.trending.compaction-interval:1m}") Duration compactionInterval) {
+        this(storage, slot, windows, compactionInterval, Clock.systemUTC());
+    }
+
+    public TrendingIndex(FilmStorage storage, Duration slot, List<Duration> windows, Duration compactionInterval,
+                         Clock clock) {
+        if (windows.isEmpty() || windows.stream().anyMatch(window -> window.isZero() || window.isNegative()
+                || window.toMillis() % slot.toMillis() != 0)) {
+            throw new IllegalArgumentException(String.format("Trending windows %s must be multiples of the slot %s",
+                    windows, slot));
+        }
+        this.storage = storage;
+        this.clock = clock;
+        this.slotMillis = slot.toMillis();
+        this.compactionInterval = compactionInterval;
+        this.windows = windows.stream()
+                .sorted()
+                .distinct()
+                .map(window -> new Window(window, window.toMillis() / slotMillis))
+                .collect(Collectors.toList());
+    }
+
+    @PostConstruct
+    public void start() {
+        rebuild();
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "trending-compaction");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::compact, compactionInterval.toMillis(), compactionInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            slots.clear();
+            likedIn.clear();
+            windows.forEach(Window::clear);
+            currentSlot = slotOf(clock.instant());
+            Instant since = Instant.ofEpochMilli((currentSlot - longestWindow() + 1) * slotMillis);
+            storage.forEachLikeSince(since, (like, likedAt) ->
+                    like(like.getFilmId(), like.getUserId(), slotOf(likedAt)));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void like(int filmId, int userId) {
+        lock.readLock().lock();
+        try {
+            like(filmId, userId, slotOf(clock.instant()));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void unlike(int filmId, int userId) {
+        lock.readLock().lock();
+        try {
+            Map<Integer, Long> users = likedIn.get(filmId);
+            Long slot = users == null ? null : users.remove(userId);
+            if (slot != null) {
+                add(filmId, slot, -1);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Takes back the likes of {@code filmId} inside the windows by users not in {@code userIds}.
+     */
+    public void retainLikes(int filmId, Collection<Integer> userIds) {
+        Map<Integer, Long> users = likedIn.get(filmId);
+        if (users != null) {
+            users.keySet().stream()
+                    .filter(userId -> !userIds.contains(userId))
+                    .collect(Collectors.toList())
+                    .forEach(userId -> unlike(filmId, userId));
+        }
+    }
+
+    public List<Integer> getTop(Duration window, int count) {
+        Window match = windows.stream()
+                .filter(candidate -> candidate.getLength().equals(window))
+                .findFirst()
+                .orElseThrow(() -> new ValidationException("window", String.format("Window must be one of %s",
+                        windows.stream().map(Window::getLength).map(TrendingIndex::format)
+                                .collect(Collectors.joining(", ")))));
+        compact();
+        return match.getRanking().stream()
+                .limit(count)
+                .map(Entry::getFilmId)
+                .collect(Collectors.toList());
+    }
+
+    public void compact() {
+        long slot = slotOf(clock.instant());
+        if (slot <= currentSlot) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            long previous = currentSlot;
+            if (slot <= previous) {
+                return;
+            }
+            slots.forEach((key, likes) -> {
+                for (Window window : windows) {
+                    if (key > previous - window.getSlots() && key <= slot - window.getSlots()) {
+                        likes.forEach((filmId, count) -> window.adjust(filmId, -count));
+                    }
+                }
+            });
+            slots.keySet().removeIf(key -> key <= slot - longestWindow());
+            likedIn.values().forEach(users -> users.values().removeIf(key -> key <= slot - longestWindow()));
+            likedIn.values().removeIf(Map::isEmpty);
+            currentSlot = slot;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void like(int filmId, int userId, long slot) {
+        if (slot > currentSlot - longestWindow()
+                && likedIn.computeIfAbsent(filmId, id -> new ConcurrentHashMap<>()).putIfAbsent(userId, slot) == null) {
+            add(filmId, slot, 1);
+        }
+    }
+
+    private void add(int filmId, long slot, int delta) {
+        if (slot <= currentSlot - longestWindow()) {
+            return;
+        }
+        slots.computeIfAbsent(slot, key -> new ConcurrentHashMap<>()).merge(filmId, delta, TrendingIndex::sumOrNull);
+        for (Window window : windows) {
+            if (slot > currentSlot - window.getSlots()) {
+                window.adjust(filmId, delta);
+            }
+        }
+    }
+
+    private long longestWindow() {
+        return windows.get(windows.size() - 1).getSlots();
+    }
+
+    private long slotOf(Instant time) {
+        return Math.floorDiv(time.toEpochMilli(), slotMillis);
+    }
+
+    private static Integer sumOrNull(int a, int b) {
+        return a + b == 0 ? null : a + b;
+    }
+
+    private static String format(Duration duration) {
+        if (duration.toMinutes() % 60 != 0) {
+            return duration.toMinutes() + "m";
+        }
+        return duration.toHours() % 24 != 0 ? duration.toHours() + "h" : duration.toDays() + "d";
+    }
+
+    @lombok.Value
+    private static class Window {
+        Duration length;
+        long slots;
+        Map<Integer, Integer> counts = new ConcurrentHashMap<>();
+        NavigableSet<Entry> ranking = new ConcurrentSkipListSet<>(ORDER);
+
+        void adjust(int filmId, int delta) {
+            counts.compute(filmId, (id, old) -> {
+                int likes = (old == null ? 0 : old) + delta;
+                if (old != null) {
+                    ranking.remove(new Entry(old, id));
+                }
+                if (likes > 0) {
+                    ranking.add(new Entry(likes, id));
+                }
+                return likes == 0 ? null : likes;
+            });
+        }
+
+        void clear() {
+            counts.clear();
+            ranking.clear();
+        }
+    }
+
+    @lombok.Value
+    private static class Entry {
+        int likes;
+        int filmId;
+    }
+}
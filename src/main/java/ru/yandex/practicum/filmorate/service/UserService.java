@@ -2,33 +2,52 @@ package ru.yandex.practicum.filmorate.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.Value;
+import lombok.experimental.NonFinal;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.FriendRecommendation;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
-import java.util.stream.Collectors;
+
+import static ru.yandex.practicum.filmorate.service.Retries.withRetry;
 
 @Value
+@NonFinal
 @RequiredArgsConstructor
 @Service
 public class UserService {
+    public static final int MAX_PAGE_SIZE = 1000;
+
     @Qualifier("userDbStorage")
     UserStorage storage;
 
+    ChangeTracker changeTracker;
+
+    FriendRecommendations friendRecommendations;
+
     public List<User> getAll() {
         return storage.getAll();
     }
 
+    public List<User> getPage(int afterId, int limit) {
+        checkLimit(limit);
+        return storage.getPage(afterId, limit);
+    }
+
     public User add(User user) {
-        return storage.add(user);
+        User added = withRetry(() -> storage.add(user));
+        changeTracker.changed(ChangeTracker.Region.USERS);
+        return added;
     }
 
     public User update(User user) {
-        return storage.update(user);
+        User updated = withRetry(() -> storage.update(user));
+        friendRecommendations.invalidate(updated.getId());
+        changeTracker.changed(ChangeTracker.Region.USERS);
+        return updated;
     }
 
     public User getById(int id) {
@@ -36,39 +55,46 @@ public class UserService {
     }
 
     public List<User> getCommonFriends(int id, int otherId) {
-        Set<Integer> friends = new HashSet<>(storage.getById(id).getFriends());
-        friends.retainAll(storage.getById(otherId).getFriends());
-        return friends.stream()
-                .map(storage::getById)
-                .collect(Collectors.toList());
+        return storage.getCommonFriends(id, otherId);
     }
 
     public boolean addFriend(int id, int friendId) {
-        User user = storage.getById(id);
-        User friend = storage.getById(friendId);
-        boolean isAddOk = user.getFriends().add(friend.getId());
-        if (isAddOk) {
-            storage.update(user);
+        boolean isAdded = withRetry(() -> storage.addFriendship(id, friendId));
+        if (isAdded) {
+            friendRecommendations.invalidate(id);
+            changeTracker.changed(ChangeTracker.Region.USERS);
         }
-        return isAddOk;
+        return isAdded;
     }
 
     public boolean deleteFriend(int id, int friendId) {
-        User user = storage.getById(id);
-        User friend = storage.getById(friendId);
-        boolean isDelOk = user.getFriends().remove(friend.getId());
+        boolean isDelOk = withRetry(() -> storage.removeFriendship(id, friendId));
         if (isDelOk) {
-            storage.update(user);
-            friend.getFriends().remove(user.getId());
-            storage.update(friend);
+            withRetry(() -> storage.removeFriendship(friendId, id));
+            friendRecommendations.invalidate(id);
+            friendRecommendations.invalidate(friendId);
+            changeTracker.changed(ChangeTracker.Region.USERS);
         }
         return isDelOk;
     }
 
-    public List<User> getFriends(int id) {
-        return storage.getById(id).getFriends().stream()
-                .map(storage::getById)
-                .collect(Collectors.toList());
+    public List<FriendRecommendation> getFriendRecommendations(int id, int count) {
+        return friendRecommendations.recommend(id, count);
+    }
+
+    public List<User> getFriends(int id, boolean withFriends) {
+        return storage.getByIds(storage.getById(id).getFriends(), withFriends);
+    }
+
+    public List<User> getFriendsPage(int id, int afterId, int limit, boolean withFriends) {
+        checkLimit(limit);
+        return storage.getByIds(storage.getFriendIds(id, afterId, limit), withFriends);
+    }
+
+    private static void checkLimit(int limit) {
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            throw new ValidationException("limit", String.format("Limit must be between 1 and %d", MAX_PAGE_SIZE));
+        }
     }
 }
 
@@ -0,0 +1,25 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+public final class GeneratedKeys {
+    private GeneratedKeys() {
+    }
+
+    public static List<Integer> ids(PreparedStatement stmt, int count) throws SQLException {
+        List<Integer> ids = new ArrayList<>(count);
+        try (ResultSet keys = stmt.getGeneratedKeys()) {
+            while (keys.next()) {
+                ids.add(keys.getInt(1));
+            }
+        }
+        if (ids.size() != count) {
+            throw new IllegalStateException(String.format("Expected %d generated keys, got %d", count, ids.size()));
+        }
+        return ids;
+    }
+}
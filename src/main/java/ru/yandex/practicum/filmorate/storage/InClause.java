@@ -0,0 +1,45 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Splits ids into IN-list chunks padded to a power of two by repeating the last id,
+ * so the database sees a handful of distinct statements instead of one per list size.
+ */
+public final class InClause {
+    public static final int MAX_SIZE = 512;
+    private static final String[] PLACEHOLDERS = new String[Integer.numberOfTrailingZeros(MAX_SIZE) + 1];
+
+    static {
+        for (int i = 0; i < PLACEHOLDERS.length; i++) {
+            PLACEHOLDERS[i] = String.join(", ", Collections.nCopies(1 << i, "?"));
+        }
+    }
+
+    private InClause() {
+    }
+
+    public static List<Object[]> chunks(Collection<Integer> ids) {
+        List<Integer> idList = new ArrayList<>(ids);
+        List<Object[]> chunks = new ArrayList<>();
+        for (int from = 0; from < idList.size(); from += MAX_SIZE) {
+            List<Integer> chunk = idList.subList(from, Math.min(from + MAX_SIZE, idList.size()));
+            Object[] args = Arrays.copyOf(chunk.toArray(), paddedSize(chunk.size()));
+            Arrays.fill(args, chunk.size(), args.length, chunk.get(chunk.size() - 1));
+            chunks.add(args);
+        }
+        return chunks;
+    }
+
+    public static String placeholders(Object[] args) {
+        return PLACEHOLDERS[Integer.numberOfTrailingZeros(args.length)];
+    }
+
+    private static int paddedSize(int size) {
+        return size == 1 ? 1 : Integer.highestOneBit(size - 1) << 1;
+    }
+}
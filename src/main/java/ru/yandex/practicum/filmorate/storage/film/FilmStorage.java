@@ -1,17 +1,48 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFacets;
+import ru.yandex.practicum.filmorate.model.Like;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
+import java.util.function.BiConsumer;
 
 public interface FilmStorage {
     Film add(Film film);
 
     Film update(Film film);
 
+    List<Integer> addAll(List<Film> films);
+
     List<Film> getAll();
 
+    List<Film> getPage(int afterId, int limit);
+
     Film getById(int id);
 
+    List<Film> getByIds(Collection<Integer> ids);
+
+    Set<Integer> getExistingIds(Collection<Integer> ids);
+
+    List<FilmFacets> getFacets();
+
+    boolean addLike(int filmId, int userId);
+
+    boolean removeLike(int filmId, int userId);
+
+    void forEachLike(BiConsumer<Integer, Integer> filmAndUser);
+
+    void forEachLikeSince(Instant since, BiConsumer<Like, Instant> likeAndLikedAt);
+
+    /**
+     * Writes likes in one transaction, skipping likes that already exist and removals of missing ones.
+     *
+     * @return the likes of {@code added} that were actually inserted
+     */
+    List<Like> applyLikes(Collection<Like> added, Collection<Like> removed);
+
     void clearDB();
 }
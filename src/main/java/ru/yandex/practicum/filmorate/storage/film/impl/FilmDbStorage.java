@@ -2,32 +2,82 @@ package ru.yandex.practicum.filmorate.storage.film.impl;
 
 import lombok.RequiredArgsConstructor;
 import lombok.Value;
+import lombok.experimental.NonFinal;
 import org.springframework.beans.factory.annotation.Qualifier;
-import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.exception.ConflictException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFacets;
 import ru.yandex.practicum.filmorate.model.Genre;
-import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.storage.GeneratedKeys;
+import ru.yandex.practicum.filmorate.storage.InClause;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.genre.GenreStorage;
+import ru.yandex.practicum.filmorate.storage.mpa.MpaStorage;
 
 import java.sql.Date;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.BiConsumer;
 
 @Value
+@NonFinal
 @RequiredArgsConstructor
 @Component
 @Qualifier("filmDbStorage")
 public class FilmDbStorage implements FilmStorage {
+    private static final String SELECT_FILMS = "SELECT f.* FROM film AS f";
+    private static final String SELECT_GENRES = "SELECT film_id, genre_id FROM film_genres";
+    private static final String SELECT_LIKES = "SELECT film_id, user_id FROM film_likes";
+    private static final String SELECT_LIKES_SINCE = "SELECT film_id, user_id, created_at FROM film_likes " +
+            "WHERE created_at >= ?";
+    private static final String SELECT_FILM_LIKES = "SELECT user_id FROM film_likes WHERE film_id = ?";
+    private static final String INSERT_FILM = "INSERT INTO film " +
+            "(name, description, release_date, duration, mpa_id, like_count) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String DELETE_FILM_GENRES = "DELETE FROM film_genres WHERE film_id = ?";
+    private static final String INSERT_FILM_GENRE = "INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)";
+    private static final String INSERT_FILM_LIKE = "INSERT INTO film_likes (film_id, user_id) VALUES (?, ?)";
+    private static final String SELECT_FACETS = "SELECT id, like_count, release_date, mpa_id FROM film";
+    private static final String INSERT_LIKE = "INSERT INTO film_likes (film_id, user_id) SELECT ?, ? " +
+            "WHERE NOT EXISTS (SELECT 1 FROM film_likes WHERE film_id = ? AND user_id = ?)";
+    private static final String DELETE_LIKE = "DELETE FROM film_likes WHERE film_id = ? AND user_id = ?";
+    private static final String SHIFT_LIKE_COUNT = "UPDATE film SET like_count = like_count + ?, " +
+            "version = version + 1 WHERE id = ?";
+    private static final String UPDATE_FILM = "SELECT version FROM FINAL TABLE (UPDATE film SET name = ?, " +
+            "description = ?, release_date = ?, duration = ?, mpa_id = ?, like_count = ?, version = version + 1 " +
+            "WHERE id = ? AND version = COALESCE(?, version))";
+    private static final String COUNT_BY_ID = "SELECT COUNT(*) FROM film WHERE id = ?";
+    private static final String SELECT_EXISTING_IDS = "SELECT id FROM film WHERE id IN (";
+    private static final String PAGE_CONDITION = " WHERE f.id > ? ORDER BY f.id LIMIT ?";
+    private static final String PAGE_LINK_CONDITION = " WHERE film_id IN " +
+            "(SELECT id FROM film WHERE id > ? ORDER BY id LIMIT ?)";
+    private static final int BATCH_SIZE = 500;
+
     JdbcTemplate jdbcTemplate;
+    TransactionTemplate transactionTemplate;
+    GenreStorage genreStorage;
+    MpaStorage mpaStorage;
 
     @Override
     public void clearDB() {
@@ -35,88 +85,293 @@ public class FilmDbStorage implements FilmStorage {
 
     @Override
     public Film add(Film film) {
-        String sqlQuery = "INSERT INTO film (name, description, release_date, duration, mpa_id) " +
-                "values (?, ?, ?, ?, ?)";
-        KeyHolder keyHolder = new GeneratedKeyHolder();
-        jdbcTemplate.update(connection -> {
-            PreparedStatement stmt = connection.prepareStatement(sqlQuery, new String[]{"id"});
-            stmt.setString(1, film.getName());
-            stmt.setString(2, film.getDescription());
-            stmt.setDate(3, Date.valueOf(film.getReleaseDate()));
-            stmt.setInt(4, film.getDuration());
-            stmt.setInt(5, film.getMpa().getId());
-            return stmt;
-        }, keyHolder);
-        int newId = keyHolder.getKey().intValue();
-
-        updateGenresByFilm(film, newId);
-        updateLikesByFilm(film, newId);
-
-        return getById(newId);
+        Film resolved = withReferences(film);
+        int newId = transactionTemplate.execute(status -> {
+            KeyHolder keyHolder = new GeneratedKeyHolder();
+            jdbcTemplate.update(connection -> {
+                PreparedStatement stmt = connection.prepareStatement(INSERT_FILM, new String[]{"id"});
+                stmt.setString(1, film.getName());
+                stmt.setString(2, film.getDescription());
+                stmt.setDate(3, Date.valueOf(film.getReleaseDate()));
+                stmt.setInt(4, film.getDuration());
+                stmt.setInt(5, film.getMpa().getId());
+                stmt.setInt(6, film.getLikes().size());
+                return stmt;
+            }, keyHolder);
+            int id = keyHolder.getKey().intValue();
+
+            updateGenresByFilm(film, id);
+            updateLikesByFilm(film, id);
+            return id;
+        });
+
+        return resolved.toBuilder()
+                .id(newId)
+                .version(0)
+                .build();
     }
 
     @Override
     public Film update(Film film) {
-        String sqlQuery = "UPDATE film SET name = ?, description = ?, release_date = ?, duration = ?, " +
-                "mpa_id = ? WHERE id = ?";
-        jdbcTemplate.update(sqlQuery, film.getName(), film.getDescription(), Date.valueOf(film.getReleaseDate()),
-                film.getDuration(), film.getMpa().getId(), film.getId());
+        Film resolved = withReferences(film);
+        int version = transactionTemplate.execute(status -> {
+            List<Integer> versions = jdbcTemplate.queryForList(UPDATE_FILM, Integer.class, film.getName(),
+                    film.getDescription(), Date.valueOf(film.getReleaseDate()), film.getDuration(),
+                    film.getMpa().getId(), film.getLikes().size(), film.getId(), film.getVersion());
+            if (versions.isEmpty()) {
+                checkExists(film.getId());
+                throw new ConflictException(String.format("Film with id=%d was modified, expected version=%d",
+                        film.getId(), film.getVersion()));
+            }
+
+            updateGenresByFilm(film, film.getId());
+            updateLikesByFilm(film, film.getId());
+            return versions.get(0);
+        });
+
+        return resolved.toBuilder()
+                .version(version)
+                .build();
+    }
 
-        updateGenresByFilm(film, film.getId());
-        updateLikesByFilm(film, film.getId());
+    @Override
+    public List<Integer> addAll(List<Film> films) {
+        return transactionTemplate.execute(status -> {
+            List<Integer> ids = jdbcTemplate.execute((ConnectionCallback<List<Integer>>) connection -> {
+                try (PreparedStatement stmt = connection.prepareStatement(INSERT_FILM, new String[]{"id"})) {
+                    for (Film film : films) {
+                        stmt.setString(1, film.getName());
+                        stmt.setString(2, film.getDescription());
+                        stmt.setDate(3, Date.valueOf(film.getReleaseDate()));
+                        stmt.setInt(4, film.getDuration());
+                        stmt.setInt(5, film.getMpa().getId());
+                        stmt.setInt(6, film.getLikes().size());
+                        stmt.addBatch();
+                    }
+                    stmt.executeBatch();
+                    return GeneratedKeys.ids(stmt, films.size());
+                }
+            });
 
-        return getById(film.getId());
+            List<Object[]> genres = new ArrayList<>();
+            List<Object[]> likes = new ArrayList<>();
+            for (int i = 0; i < films.size(); i++) {
+                int filmId = ids.get(i);
+                films.get(i).getGenres().forEach(genre -> genres.add(new Object[]{filmId, genre.getId()}));
+                films.get(i).getLikes().forEach(userId -> likes.add(new Object[]{filmId, userId}));
+            }
+            if (!genres.isEmpty()) {
+                jdbcTemplate.batchUpdate(INSERT_FILM_GENRE, genres);
+            }
+            if (!likes.isEmpty()) {
+                jdbcTemplate.batchUpdate(INSERT_FILM_LIKE, likes);
+            }
+            return ids;
+        });
     }
 
     @Override
     public List<Film> getAll() {
-        String sql = "SELECT *, m.name AS mpa_name FROM film AS f LEFT JOIN mpa AS m ON f.mpa_id = m.id";
-        return jdbcTemplate.query(sql, this::mapRow);
+        return loadFilms("", "");
+    }
+
+    @Override
+    public List<Film> getPage(int afterId, int limit) {
+        return loadFilms(PAGE_CONDITION, PAGE_LINK_CONDITION, afterId, limit);
     }
 
     @Override
     public Film getById(int id) {
-        String sql = "SELECT *, m.name AS mpa_name FROM film AS f LEFT JOIN mpa AS m ON f.mpa_id = m.id WHERE f.id = ?";
+        List<Film> films = loadFilms(" WHERE f.id = ?", " WHERE film_id = ?", id);
+        if (films.isEmpty()) {
+            throw new NotFoundException(String.format("Film with id=%d not found", id));
+        }
+        return films.get(0);
+    }
+
+    @Override
+    public List<Film> getByIds(Collection<Integer> ids) {
+        List<Film> films = new ArrayList<>(ids.size());
+        for (Object[] chunk : InClause.chunks(ids)) {
+            String placeholders = InClause.placeholders(chunk);
+            films.addAll(loadFilms(" WHERE f.id IN (" + placeholders + ")",
+                    " WHERE film_id IN (" + placeholders + ")", chunk));
+        }
+        return films;
+    }
+
+    @Override
+    public Set<Integer> getExistingIds(Collection<Integer> ids) {
+        Set<Integer> existing = new HashSet<>();
+        for (Object[] chunk : InClause.chunks(ids)) {
+            jdbcTemplate.query(SELECT_EXISTING_IDS + InClause.placeholders(chunk) + ")",
+                    (RowCallbackHandler) rs -> existing.add(rs.getInt("id")), chunk);
+        }
+        return existing;
+    }
+
+    @Override
+    public List<FilmFacets> getFacets() {
+        Map<Integer, Set<Integer>> genreIds = new HashMap<>();
+        jdbcTemplate.query(SELECT_GENRES, (RowCallbackHandler) rs ->
+                genreIds.computeIfAbsent(rs.getInt("film_id"), id -> new HashSet<>()).add(rs.getInt("genre_id")));
+        return jdbcTemplate.query(SELECT_FACETS, (rs, rowNum) -> new FilmFacets(rs.getInt("id"),
+                rs.getInt("like_count"), rs.getDate("release_date").toLocalDate().getYear(), rs.getInt("mpa_id"),
+                genreIds.getOrDefault(rs.getInt("id"), Set.of())));
+    }
+
+    @Override
+    public boolean addLike(int filmId, int userId) {
+        checkExists(filmId);
         try {
-            return jdbcTemplate.queryForObject(sql, this::mapRow, id);
-        } catch (EmptyResultDataAccessException e) {
+            return transactionTemplate.execute(status -> {
+                boolean isAdded = jdbcTemplate.update(INSERT_LIKE, filmId, userId, filmId, userId) > 0;
+                if (isAdded) {
+                    jdbcTemplate.update(SHIFT_LIKE_COUNT, 1, filmId);
+                }
+                return isAdded;
+            });
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public boolean removeLike(int filmId, int userId) {
+        checkExists(filmId);
+        return transactionTemplate.execute(status -> {
+            boolean isRemoved = jdbcTemplate.update(DELETE_LIKE, filmId, userId) > 0;
+            if (isRemoved) {
+                jdbcTemplate.update(SHIFT_LIKE_COUNT, -1, filmId);
+            }
+            return isRemoved;
+        });
+    }
+
+    @Override
+    public void forEachLike(BiConsumer<Integer, Integer> filmAndUser) {
+        jdbcTemplate.query(SELECT_LIKES, (RowCallbackHandler) rs ->
+                filmAndUser.accept(rs.getInt("film_id"), rs.getInt("user_id")));
+    }
+
+    @Override
+    public void forEachLikeSince(Instant since, BiConsumer<Like, Instant> likeAndLikedAt) {
+        jdbcTemplate.query(SELECT_LIKES_SINCE, (RowCallbackHandler) rs -> likeAndLikedAt.accept(
+                new Like(rs.getInt("film_id"), rs.getInt("user_id")), rs.getTimestamp("created_at").toInstant()),
+                Timestamp.from(since));
+    }
+
+    @Override
+    public List<Like> applyLikes(Collection<Like> added, Collection<Like> removed) {
+        return transactionTemplate.execute(status -> {
+            Map<Integer, Integer> shifts = new HashMap<>();
+            List<Like> inserted = batchLikes(INSERT_LIKE, added, (ps, like) -> {
+                ps.setInt(1, like.getFilmId());
+                ps.setInt(2, like.getUserId());
+                ps.setInt(3, like.getFilmId());
+                ps.setInt(4, like.getUserId());
+            });
+            inserted.forEach(like -> shifts.merge(like.getFilmId(), 1, Integer::sum));
+            batchLikes(DELETE_LIKE, removed, (ps, like) -> {
+                ps.setInt(1, like.getFilmId());
+                ps.setInt(2, like.getUserId());
+            }).forEach(like -> shifts.merge(like.getFilmId(), -1, Integer::sum));
+
+            List<Object[]> args = new ArrayList<>(shifts.size());
+            shifts.forEach((filmId, shift) -> {
+                if (shift != 0) {
+                    args.add(new Object[]{shift, filmId});
+                }
+            });
+            if (!args.isEmpty()) {
+                jdbcTemplate.batchUpdate(SHIFT_LIKE_COUNT, args);
+            }
+            return inserted;
+        });
+    }
+
+    private List<Like> batchLikes(String sql, Collection<Like> likes,
+                                  ParameterizedPreparedStatementSetter<Like> setter) {
+        if (likes.isEmpty()) {
+            return List.of();
+        }
+        List<Like> likeList = new ArrayList<>(likes);
+        int[][] counts = jdbcTemplate.batchUpdate(sql, likeList, BATCH_SIZE, setter);
+        List<Like> changed = new ArrayList<>();
+        int index = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                if (count > 0) {
+                    changed.add(likeList.get(index));
+                }
+                index++;
+            }
+        }
+        return changed;
+    }
+
+    private void checkExists(int id) {
+        Integer count = jdbcTemplate.queryForObject(COUNT_BY_ID, Integer.class, id);
+        if (count == null || count == 0) {
             throw new NotFoundException(String.format("Film with id=%d not found", id));
         }
     }
 
-    private Film mapRow(ResultSet rs, int rowNum) throws SQLException {
-        int id = rs.getInt("id");
-         return Film.builder()
-                .id(id)
+    private List<Film> loadFilms(String filmCondition, String linkCondition, Object... args) {
+        Map<Integer, Film> films = new LinkedHashMap<>();
+        jdbcTemplate.query(SELECT_FILMS + filmCondition, (RowCallbackHandler) rs -> {
+            Film film = mapRow(rs);
+            films.put(film.getId(), film);
+        }, args);
+        if (films.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        jdbcTemplate.query(SELECT_GENRES + linkCondition, (RowCallbackHandler) rs -> {
+            Film film = films.get(rs.getInt("film_id"));
+            if (film != null) {
+                film.getGenres().add(genreStorage.getById(rs.getInt("genre_id")));
+            }
+        }, args);
+        jdbcTemplate.query(SELECT_LIKES + linkCondition, (RowCallbackHandler) rs -> {
+            Film film = films.get(rs.getInt("film_id"));
+            if (film != null) {
+                film.getLikes().add(rs.getInt("user_id"));
+            }
+        }, args);
+
+        return new ArrayList<>(films.values());
+    }
+
+    private Film mapRow(ResultSet rs) throws SQLException {
+        return Film.builder()
+                .id(rs.getInt("id"))
+                .version(rs.getInt("version"))
                 .name(rs.getString("name"))
                 .description(rs.getString("description"))
                 .releaseDate(rs.getDate("release_date").toLocalDate())
                 .duration(rs.getInt("duration"))
-                .mpa(Mpa.builder().id(rs.getInt("mpa_id")).name(rs.getString("mpa_name")).build())
-                .genres(getGenresByFilm(id))
-                .likes(getLikesByFilm(id))
+                .mpa(mpaStorage.getById(rs.getInt("mpa_id")))
                 .build();
     }
 
-    private Set<Genre> getGenresByFilm(int filmId) {
-        String sql = "SELECT g.id, g.name FROM genre AS g JOIN film_genres as fg ON g.id = fg.genre_id WHERE fg.film_id = ?";
-        return new HashSet<>(jdbcTemplate.query(sql, (rs, rowNum) ->
-                Genre.builder()
-                        .id(rs.getInt("id"))
-                        .name(rs.getString("name"))
-                        .build(), filmId));
-    }
-
-    private Set<Integer> getLikesByFilm(int filmId) {
-        String sql = "SELECT fl.user_id FROM film_likes AS fl WHERE fl.film_id = ?";
-        return new HashSet<>(jdbcTemplate.queryForList(sql, Integer.class, filmId));
+    private Film withReferences(Film film) {
+        Set<Genre> genres = new HashSet<>();
+        for (Genre genre : film.getGenres()) {
+            genres.add(genreStorage.getById(genre.getId()));
+        }
+        return film.toBuilder()
+                .mpa(mpaStorage.getById(film.getMpa().getId()))
+                .genres(genres)
+                .likes(new HashSet<>(film.getLikes()))
+                .build();
     }
 
     private void updateGenresByFilm(Film film, int filmId) {
-        jdbcTemplate.update("DELETE film_genres WHERE film_id = ?", film.getId());
+        jdbcTemplate.update(DELETE_FILM_GENRES, filmId);
 
         if (!film.getGenres().isEmpty()) {
-            jdbcTemplate.batchUpdate("INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)",
+            jdbcTemplate.batchUpdate(INSERT_FILM_GENRE,
                     film.getGenres(),
                     50,
                     (PreparedStatement ps, Genre genre) -> {
@@ -127,16 +382,24 @@ public class FilmDbStorage implements FilmStorage {
     }
 
     private void updateLikesByFilm(Film film, int filmId) {
-        jdbcTemplate.update("DELETE film_likes WHERE film_id = ?", film.getId());
-
-        if (!film.getLikes().isEmpty()) {
-            jdbcTemplate.batchUpdate("INSERT INTO film_likes (film_id, user_id) VALUES (?, ?)",
-                    film.getLikes(),
-                    50,
-                    (PreparedStatement ps, Integer userId) -> {
-                        ps.setInt(1, filmId);
-                        ps.setInt(2, userId);
-                    });
+        Set<Integer> current = new HashSet<>(jdbcTemplate.queryForList(SELECT_FILM_LIKES, Integer.class, filmId));
+        List<Object[]> removed = new ArrayList<>();
+        for (int userId : current) {
+            if (!film.getLikes().contains(userId)) {
+                removed.add(new Object[]{filmId, userId});
+            }
+        }
+        List<Object[]> added = new ArrayList<>();
+        for (int userId : film.getLikes()) {
+            if (!current.contains(userId)) {
+                added.add(new Object[]{filmId, userId});
+            }
+        }
+        if (!removed.isEmpty()) {
+            jdbcTemplate.batchUpdate(DELETE_LIKE, removed);
+        }
+        if (!added.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_FILM_LIKE, added);
         }
     }
 }
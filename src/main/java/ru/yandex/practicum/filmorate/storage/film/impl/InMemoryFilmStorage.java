@@ -1,58 +1,248 @@
 package ru.yandex.practicum.filmorate.storage.film.impl;
 
 import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.ConflictException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFacets;
+import ru.yandex.practicum.filmorate.model.Like;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.graph.AdjacencyStore;
 
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
 
 @Component
 public class InMemoryFilmStorage implements FilmStorage {
-    private final Map<Integer, Film> map = new HashMap<>();
-    private AtomicInteger nextId = new AtomicInteger(0);
+    private static final long[] NO_TIMES = new long[0];
+
+    private final Map<Integer, Film> map = new ConcurrentHashMap<>();
+    private final AdjacencyStore likes = new AdjacencyStore(false);
+    // like times in epoch millis, parallel to the film's array in likes and changed under the film's map entry
+    private final Map<Integer, long[]> likedAt = new ConcurrentHashMap<>();
+    private final AtomicInteger nextId = new AtomicInteger(0);
 
     @Override
     public Film add(Film film) {
-        Film newFilm = film.toBuilder()
-                .id(nextId.incrementAndGet())
-                .build();
+        Film newFilm = withoutLikes(film, nextId.incrementAndGet(), 0);
 
+        replaceLikes(newFilm.getId(), film.getLikes());
         map.put(newFilm.getId(), newFilm);
-        return map.get(newFilm.getId());
+        return withLikes(newFilm);
     }
 
     @Override
     public Film update(Film film) {
-        if (map.containsKey(film.getId())) {
-            map.put(film.getId(), film);
-            return map.get(film.getId());
-        } else {
-            throw new NotFoundException(String.format("Film with id=%d not found", film.getId()));
-        }
+        map.compute(film.getId(), (id, oldFilm) -> {
+            if (oldFilm == null) {
+                throw new NotFoundException(String.format("Film with id=%d not found", id));
+            }
+            if (film.getVersion() != null && !film.getVersion().equals(oldFilm.getVersion())) {
+                throw new ConflictException(String.format("Film with id=%d was modified, expected version=%d",
+                        id, film.getVersion()));
+            }
+            replaceLikes(id, film.getLikes());
+            return withoutLikes(film, id, oldFilm.getVersion() + 1);
+        });
+        return getById(film.getId());
+    }
+
+    @Override
+    public List<Integer> addAll(List<Film> films) {
+        return films.stream()
+                .map(film -> add(film).getId())
+                .collect(Collectors.toList());
     }
 
     @Override
     public List<Film> getAll() {
-        return new ArrayList<>(map.values());
+        return map.values().stream()
+                .map(this::withLikes)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Film> getPage(int afterId, int limit) {
+        return map.values().stream()
+                .filter(film -> film.getId() > afterId)
+                .sorted(Comparator.comparingInt(Film::getId))
+                .limit(limit)
+                .map(this::withLikes)
+                .collect(Collectors.toList());
     }
 
     @Override
     public Film getById(int id) {
-        if (map.containsKey(id)) {
-            return map.get(id);
-        } else {
+        Film film = map.get(id);
+        if (film == null) {
             throw new NotFoundException(String.format("Film with id=%d not found", id));
         }
+        return withLikes(film);
+    }
+
+    @Override
+    public List<Film> getByIds(Collection<Integer> ids) {
+        return ids.stream()
+                .map(map::get)
+                .filter(Objects::nonNull)
+                .map(this::withLikes)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public Set<Integer> getExistingIds(Collection<Integer> ids) {
+        return ids.stream()
+                .filter(map::containsKey)
+                .collect(Collectors.toSet());
+    }
+
+    @Override
+    public List<FilmFacets> getFacets() {
+        return map.values().stream()
+                .map(film -> FilmFacets.of(withLikes(film)))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public boolean addLike(int filmId, int userId) {
+        boolean[] isAdded = new boolean[1];
+        map.compute(filmId, (id, film) -> {
+            if (film == null) {
+                throw new NotFoundException(String.format("Film with id=%d not found", id));
+            }
+            isAdded[0] = likes.add(id, userId);
+            if (isAdded[0]) {
+                int index = Arrays.binarySearch(likes.neighbours(id), userId);
+                long[] times = likedAt.getOrDefault(id, NO_TIMES);
+                long[] updated = new long[times.length + 1];
+                System.arraycopy(times, 0, updated, 0, index);
+                updated[index] = System.currentTimeMillis();
+                System.arraycopy(times, index, updated, index + 1, times.length - index);
+                likedAt.put(id, updated);
+            }
+            return isAdded[0] ? withNextVersion(film) : film;
+        });
+        return isAdded[0];
+    }
+
+    @Override
+    public boolean removeLike(int filmId, int userId) {
+        boolean[] isRemoved = new boolean[1];
+        map.compute(filmId, (id, film) -> {
+            if (film == null) {
+                throw new NotFoundException(String.format("Film with id=%d not found", id));
+            }
+            int index = Arrays.binarySearch(likes.neighbours(id), userId);
+            isRemoved[0] = likes.remove(id, userId);
+            if (isRemoved[0]) {
+                long[] times = likedAt.get(id);
+                long[] updated = new long[times.length - 1];
+                System.arraycopy(times, 0, updated, 0, index);
+                System.arraycopy(times, index + 1, updated, index, updated.length - index);
+                likedAt.put(id, updated);
+            }
+            return isRemoved[0] ? withNextVersion(film) : film;
+        });
+        return isRemoved[0];
+    }
+
+    @Override
+    public void forEachLike(BiConsumer<Integer, Integer> filmAndUser) {
+        for (int filmId : likes.nodes()) {
+            for (int userId : likes.neighbours(filmId)) {
+                filmAndUser.accept(filmId, userId);
+            }
+        }
+    }
+
+    @Override
+    public void forEachLikeSince(Instant since, BiConsumer<Like, Instant> likeAndLikedAt) {
+        long sinceMillis = since.toEpochMilli();
+        for (int filmId : likedAt.keySet()) {
+            int[][] users = new int[1][];
+            long[][] times = new long[1][];
+            // both arrays are replaced, never changed in place, so references read together stay aligned
+            map.computeIfPresent(filmId, (id, film) -> {
+                users[0] = likes.neighbours(id);
+                times[0] = likedAt.getOrDefault(id, NO_TIMES);
+                return film;
+            });
+            long[] filmTimes = times[0] == null ? NO_TIMES : times[0];
+            for (int i = 0; i < filmTimes.length; i++) {
+                if (filmTimes[i] >= sinceMillis) {
+                    likeAndLikedAt.accept(new Like(filmId, users[0][i]), Instant.ofEpochMilli(filmTimes[i]));
+                }
+            }
+        }
+    }
+
+    @Override
+    public List<Like> applyLikes(Collection<Like> added, Collection<Like> removed) {
+        List<Like> inserted = new ArrayList<>();
+        for (Like like : added) {
+            if (addLike(like.getFilmId(), like.getUserId())) {
+                inserted.add(like);
+            }
+        }
+        for (Like like : removed) {
+            removeLike(like.getFilmId(), like.getUserId());
+        }
+        return inserted;
     }
 
     @Override
     public void clearDB() {
         map.clear();
-        nextId = new AtomicInteger(0);
+        likes.clear();
+        likedAt.clear();
+        nextId.set(0);
+    }
+
+    private void replaceLikes(int filmId, Set<Integer> userIds) {
+        int[] current = likes.neighbours(filmId);
+        long[] times = likedAt.getOrDefault(filmId, NO_TIMES);
+        likes.replace(filmId, userIds);
+        int[] updated = likes.neighbours(filmId);
+        long[] updatedTimes = new long[updated.length];
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < updated.length; i++) {
+            int index = Arrays.binarySearch(current, updated[i]);
+            updatedTimes[i] = index >= 0 ? times[index] : now;
+        }
+        likedAt.put(filmId, updatedTimes);
+    }
+
+    private Film withLikes(Film film) {
+        return film.toBuilder()
+                .likes(AdjacencyStore.toSet(likes.neighbours(film.getId())))
+                .build();
+    }
+
+    private Film withNextVersion(Film film) {
+        return film.toBuilder()
+                .version(film.getVersion() + 1)
+                .build();
+    }
+
+    private Film withoutLikes(Film film, int id, int version) {
+        return film.toBuilder()
+                .id(id)
+                .version(version)
+                .genres(new HashSet<>(film.getGenres()))
+                .likes(Set.of())
+                .build();
     }
 }
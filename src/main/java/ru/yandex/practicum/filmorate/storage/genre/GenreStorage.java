@@ -8,4 +8,6 @@ public interface GenreStorage {
     Genre getById(int id);
 
     List<Genre> getAll();
+
+    void refresh();
 }
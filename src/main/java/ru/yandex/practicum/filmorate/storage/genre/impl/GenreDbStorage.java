@@ -2,38 +2,64 @@ package ru.yandex.practicum.filmorate.storage.genre.impl;
 
 import lombok.RequiredArgsConstructor;
 import lombok.Value;
-import org.springframework.dao.EmptyResultDataAccessException;
+import lombok.experimental.NonFinal;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.storage.genre.GenreStorage;
 
+import javax.annotation.PostConstruct;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Value
+@NonFinal
 @RequiredArgsConstructor
 @Component
 public class GenreDbStorage implements GenreStorage {
     JdbcTemplate jdbcTemplate;
+    AtomicReference<Map<Integer, Genre>> cache = new AtomicReference<>();
 
     @Override
     public Genre getById(int id) {
-        try {
-            return jdbcTemplate.queryForObject("SELECT * FROM genre WHERE id = ?", this::mapRow, id);
-        } catch (EmptyResultDataAccessException e) {
+        Genre genre = cached().get(id);
+        if (genre == null) {
             throw new NotFoundException(String.format("Genre with id=%d not found", id));
         }
+        return genre;
     }
 
     @Override
     public List<Genre> getAll() {
-        return jdbcTemplate.query("SELECT * FROM genre", this::mapRow);
+        return List.copyOf(cached().values());
     }
 
-    private Genre mapRow(ResultSet rs, int rowNum) throws SQLException {
+    @Override
+    @PostConstruct
+    public void refresh() {
+        Map<Integer, Genre> genres = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT * FROM genre ORDER BY id", (RowCallbackHandler) rs -> {
+            Genre genre = mapRow(rs);
+            genres.put(genre.getId(), genre);
+        });
+        cache.set(Collections.unmodifiableMap(genres));
+    }
+
+    private Map<Integer, Genre> cached() {
+        if (cache.get() == null) {
+            refresh();
+        }
+        return cache.get();
+    }
+
+    private Genre mapRow(ResultSet rs) throws SQLException {
         return Genre.builder()
                 .id(rs.getInt("id"))
                 .name(rs.getString("name"))
@@ -0,0 +1,274 @@
+package ru.yandex.practicum.filmorate.storage.graph;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Directed edges between int ids, kept as sorted copy-on-write {@code int[]} per node.
+ * Arrays returned by this class are shared snapshots and must not be modified.
+ */
+public class AdjacencyStore {
+    private static final int[] EMPTY = new int[0];
+
+    private final Map<Integer, int[]> forward = new ConcurrentHashMap<>();
+    private final Map<Integer, int[]> reverse;
+
+    public AdjacencyStore(boolean withReverse) {
+        this.reverse = withReverse ? new ConcurrentHashMap<>() : null;
+    }
+
+    public boolean add(int from, int to) {
+        boolean[] isAdded = new boolean[1];
+        forward.compute(from, (node, targets) -> {
+            int[] current = targets == null ? EMPTY : targets;
+            int[] updated = insert(current, to);
+            isAdded[0] = updated != current;
+            if (isAdded[0] && reverse != null) {
+                reverse.compute(to, (target, sources) -> insert(sources == null ? EMPTY : sources, from));
+            }
+            return updated;
+        });
+        return isAdded[0];
+    }
+
+    public boolean remove(int from, int to) {
+        boolean[] isRemoved = new boolean[1];
+        forward.computeIfPresent(from, (node, targets) -> {
+            int[] updated = delete(targets, to);
+            isRemoved[0] = updated != targets;
+            if (isRemoved[0] && reverse != null) {
+                reverse.computeIfPresent(to, (target, sources) -> delete(sources, from));
+            }
+            return updated;
+        });
+        return isRemoved[0];
+    }
+
+    public void replace(int from, Collection<Integer> targets) {
+        int[] updated = toSortedArray(targets);
+        forward.compute(from, (node, oldTargets) -> {
+            if (reverse != null) {
+                int[] old = oldTargets == null ? EMPTY : oldTargets;
+                for (int to : old) {
+                    if (Arrays.binarySearch(updated, to) < 0) {
+                        reverse.computeIfPresent(to, (target, sources) -> delete(sources, from));
+                    }
+                }
+                for (int to : updated) {
+                    if (Arrays.binarySearch(old, to) < 0) {
+                        reverse.compute(to, (target, sources) -> insert(sources == null ? EMPTY : sources, from));
+                    }
+                }
+            }
+            return updated;
+        });
+    }
+
+    /**
+     * Replaces all edges with {@code from[i] -> to[i]} for {@code i < size}, building every array in one pass
+     * instead of inserting edges one by one.
+     */
+    public void load(int[] from, int[] to, int size) {
+        clear();
+        long[] edges = new long[size];
+        for (int i = 0; i < size; i++) {
+            edges[i] = pack(from[i], to[i]);
+        }
+        fill(forward, edges);
+        if (reverse != null) {
+            for (int i = 0; i < size; i++) {
+                edges[i] = pack(to[i], from[i]);
+            }
+            fill(reverse, edges);
+        }
+    }
+
+    public boolean contains(int from, int to) {
+        return Arrays.binarySearch(neighbours(from), to) >= 0;
+    }
+
+    public int[] neighbours(int from) {
+        return forward.getOrDefault(from, EMPTY);
+    }
+
+    public int[] reverseNeighbours(int to) {
+        if (reverse == null) {
+            throw new UnsupportedOperationException("Reverse index is not maintained");
+        }
+        return reverse.getOrDefault(to, EMPTY);
+    }
+
+    public int degree(int from) {
+        return neighbours(from).length;
+    }
+
+    public Set<Integer> nodes() {
+        return forward.keySet();
+    }
+
+    public void clear() {
+        forward.clear();
+        if (reverse != null) {
+            reverse.clear();
+        }
+    }
+
+    /**
+     * Ranks nodes two hops away from {@code node} that are not already its neighbours by the number of paths
+     * leading to them, most paths first. At most {@code fanOutCap} lowest-id edges are followed from each neighbour.
+     */
+    public Map<Integer, Integer> rankSecondDegree(int node, int fanOutCap, int limit) {
+        int[] direct = neighbours(node);
+        int[][] hops = new int[direct.length][];
+        int total = 0;
+        for (int i = 0; i < direct.length; i++) {
+            hops[i] = neighbours(direct[i]);
+            total += Math.min(hops[i].length, fanOutCap);
+        }
+        int[] targets = new int[total];
+        int size = 0;
+        for (int[] via : hops) {
+            int count = Math.min(via.length, fanOutCap);
+            System.arraycopy(via, 0, targets, size, count);
+            size += count;
+        }
+        return rankByCount(targets, size, insert(direct, node), limit);
+    }
+
+    /**
+     * Counts occurrences of ids in {@code values[0..size)}, sorting that range in place, and returns up to
+     * {@code limit} ids that are not in the sorted {@code excluded} array, most occurrences first, then by id.
+     */
+    public static Map<Integer, Integer> rankByCount(int[] values, int size, int[] excluded, int limit) {
+        Arrays.sort(values, 0, size);
+
+        // count in the high half (inverted so ascending order puts the largest first), id in the low half
+        long[] ranked = new long[size];
+        int candidates = 0;
+        for (int from = 0; from < size; ) {
+            int to = from;
+            while (to < size && values[to] == values[from]) {
+                to++;
+            }
+            int value = values[from];
+            if (Arrays.binarySearch(excluded, value) < 0) {
+                ranked[candidates++] = ((long) (Integer.MAX_VALUE - (to - from)) << 32) | (value & 0xFFFFFFFFL);
+            }
+            from = to;
+        }
+        Arrays.sort(ranked, 0, candidates);
+
+        Map<Integer, Integer> result = new LinkedHashMap<>();
+        for (int i = 0; i < Math.min(candidates, limit); i++) {
+            result.put((int) ranked[i], Integer.MAX_VALUE - (int) (ranked[i] >>> 32));
+        }
+        return result;
+    }
+
+    public static int intersectionSize(int[] a, int[] b) {
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                size++;
+                i++;
+                j++;
+            }
+        }
+        return size;
+    }
+
+    public static int[] intersect(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[size++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    public static int[] toSortedArray(Collection<Integer> ids) {
+        return ids.stream()
+                .mapToInt(Integer::intValue)
+                .sorted()
+                .distinct()
+                .toArray();
+    }
+
+    public static Set<Integer> toSet(int[] ids) {
+        Set<Integer> set = new HashSet<>(Math.max(16, ids.length * 2));
+        for (int id : ids) {
+            set.add(id);
+        }
+        return set;
+    }
+
+    private static long pack(int from, int to) {
+        return ((long) from << 32) | (to & 0xFFFFFFFFL);
+    }
+
+    private static void fill(Map<Integer, int[]> adjacency, long[] edges) {
+        Arrays.sort(edges);
+        for (int start = 0; start < edges.length; ) {
+            int node = (int) (edges[start] >> 32);
+            int end = start;
+            while (end < edges.length && (int) (edges[end] >> 32) == node) {
+                end++;
+            }
+            int[] targets = new int[end - start];
+            int size = 0;
+            for (int i = start; i < end; i++) {
+                int target = (int) edges[i];
+                if (size == 0 || targets[size - 1] != target) {
+                    targets[size++] = target;
+                }
+            }
+            adjacency.put(node, size == targets.length ? targets : Arrays.copyOf(targets, size));
+            start = end;
+        }
+    }
+
+    public static int[] insert(int[] sorted, int value) {
+        int position = Arrays.binarySearch(sorted, value);
+        if (position >= 0) {
+            return sorted;
+        }
+        int insertAt = -position - 1;
+        int[] updated = new int[sorted.length + 1];
+        System.arraycopy(sorted, 0, updated, 0, insertAt);
+        updated[insertAt] = value;
+        System.arraycopy(sorted, insertAt, updated, insertAt + 1, sorted.length - insertAt);
+        return updated;
+    }
+
+    private static int[] delete(int[] sorted, int value) {
+        int position = Arrays.binarySearch(sorted, value);
+        if (position < 0) {
+            return sorted;
+        }
+        int[] updated = new int[sorted.length - 1];
+        System.arraycopy(sorted, 0, updated, 0, position);
+        System.arraycopy(sorted, position + 1, updated, position, sorted.length - position - 1);
+        return updated;
+    }
+}
@@ -8,4 +8,6 @@ public interface MpaStorage {
     Mpa getById(int id);
 
     List<Mpa> getAll();
+
+    void refresh();
 }
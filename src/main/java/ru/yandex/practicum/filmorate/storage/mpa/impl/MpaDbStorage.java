@@ -2,42 +2,67 @@ package ru.yandex.practicum.filmorate.storage.mpa.impl;
 
 import lombok.RequiredArgsConstructor;
 import lombok.Value;
-import org.springframework.dao.EmptyResultDataAccessException;
+import lombok.experimental.NonFinal;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Mpa;
 import ru.yandex.practicum.filmorate.storage.mpa.MpaStorage;
 
+import javax.annotation.PostConstruct;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Value
+@NonFinal
 @RequiredArgsConstructor
 @Component
 public class MpaDbStorage implements MpaStorage {
     JdbcTemplate jdbcTemplate;
+    AtomicReference<Map<Integer, Mpa>> cache = new AtomicReference<>();
 
     @Override
     public Mpa getById(int id) {
-        try {
-            return jdbcTemplate.queryForObject("SELECT * FROM mpa WHERE id = ?", this::mapRow, id);
-        } catch (EmptyResultDataAccessException e) {
+        Mpa mpa = cached().get(id);
+        if (mpa == null) {
             throw new NotFoundException(String.format("MPA with id=%d not found", id));
         }
+        return mpa;
     }
 
     @Override
     public List<Mpa> getAll() {
-        return jdbcTemplate.query("SELECT * FROM mpa", this::mapRow);
+        return List.copyOf(cached().values());
     }
 
-    private Mpa mapRow(ResultSet rs, int rowNum) throws SQLException {
+    @Override
+    @PostConstruct
+    public void refresh() {
+        Map<Integer, Mpa> ratings = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT * FROM mpa ORDER BY id", (RowCallbackHandler) rs -> {
+            Mpa mpa = mapRow(rs);
+            ratings.put(mpa.getId(), mpa);
+        });
+        cache.set(Collections.unmodifiableMap(ratings));
+    }
+
+    private Map<Integer, Mpa> cached() {
+        if (cache.get() == null) {
+            refresh();
+        }
+        return cache.get();
+    }
+
+    private Mpa mapRow(ResultSet rs) throws SQLException {
         return Mpa.builder()
                 .id(rs.getInt("id"))
                 .name(rs.getString("name"))
                 .build();
     }
-
 }
@@ -1,17 +1,52 @@
 package ru.yandex.practicum.filmorate.storage.user;
 
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public interface UserStorage {
     List<User> getAll();
 
+    List<User> getPage(int afterId, int limit);
+
     User add(User user);
 
     User update(User user);
 
+    List<Integer> addAll(List<User> users);
+
     User getById(int id);
 
+    List<User> getByIds(Collection<Integer> ids);
+
+    List<User> getByIds(Collection<Integer> ids, boolean withFriends);
+
+    Set<Integer> getExistingIds(Collection<Integer> ids);
+
+    List<User> getCommonFriends(int userId, int otherId);
+
+    boolean addFriendship(int userId, int friendId);
+
+    boolean removeFriendship(int userId, int friendId);
+
+    int addFriendships(Collection<Friendship> friendships);
+
+    /**
+     * Users that are not yet friends of {@code userId}, ranked by mutual friends, most first, then by id.
+     * At most {@code fanOutCap} friendships of each friend are considered.
+     */
+    Map<Integer, Integer> getFriendCandidates(int userId, int fanOutCap, int limit);
+
+    List<Integer> getIdsWithFriend(int friendId);
+
+    /**
+     * Friend ids of {@code userId} greater than {@code afterId}, in ascending order.
+     */
+    List<Integer> getFriendIds(int userId, int afterId, int limit);
+
     void clearDB();
 }
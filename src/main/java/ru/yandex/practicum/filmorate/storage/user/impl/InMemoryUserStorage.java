@@ -1,57 +1,218 @@
 package ru.yandex.practicum.filmorate.storage.user.impl;
 
 import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.ConflictException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.graph.AdjacencyStore;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 @Component
 public class InMemoryUserStorage implements UserStorage {
-    private final HashMap<Integer, User> map = new HashMap<>();
-    private AtomicInteger nextId = new AtomicInteger(0);
+    private final Map<Integer, User> map = new ConcurrentHashMap<>();
+    private final AdjacencyStore friends = new AdjacencyStore(true);
+    private final AtomicInteger nextId = new AtomicInteger(0);
 
     @Override
     public List<User> getAll() {
-        return new ArrayList<>(map.values());
+        return map.values().stream()
+                .map(this::withFriends)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<User> getPage(int afterId, int limit) {
+        return map.values().stream()
+                .filter(user -> user.getId() > afterId)
+                .sorted(Comparator.comparingInt(User::getId))
+                .limit(limit)
+                .map(this::withFriends)
+                .collect(Collectors.toList());
     }
 
     @Override
     public User add(User user) {
-        User newUser = user.toBuilder()
-                .id(nextId.incrementAndGet())
-                .build();
+        User newUser = withoutFriends(user, nextId.incrementAndGet(), 0);
 
+        friends.replace(newUser.getId(), user.getFriends());
         map.put(newUser.getId(), newUser);
-        return map.get(newUser.getId());
+        return withFriends(newUser);
+    }
+
+    @Override
+    public List<Integer> addAll(List<User> users) {
+        return users.stream()
+                .map(user -> add(user).getId())
+                .collect(Collectors.toList());
     }
 
     @Override
     public User update(User user) {
-        if (map.containsKey(user.getId())) {
-            map.put(user.getId(), user);
-            return map.get(user.getId());
-        } else {
-            throw new NotFoundException(String.format("User with id=%d not found", user.getId()));
-        }
+        map.compute(user.getId(), (id, oldUser) -> {
+            if (oldUser == null) {
+                throw new NotFoundException(String.format("User with id=%d not found", id));
+            }
+            if (user.getVersion() != null && !user.getVersion().equals(oldUser.getVersion())) {
+                throw new ConflictException(String.format("User with id=%d was modified, expected version=%d",
+                        id, user.getVersion()));
+            }
+            friends.replace(id, user.getFriends());
+            return withoutFriends(user, id, oldUser.getVersion() + 1);
+        });
+        return getById(user.getId());
     }
 
     @Override
     public User getById(int id) {
-        if (map.containsKey(id)) {
-            return map.get(id);
-        } else {
+        User user = map.get(id);
+        if (user == null) {
             throw new NotFoundException(String.format("User with id=%d not found", id));
         }
+        return withFriends(user);
+    }
+
+    @Override
+    public List<User> getByIds(Collection<Integer> ids) {
+        return getByIds(ids, true);
+    }
+
+    @Override
+    public List<User> getByIds(Collection<Integer> ids, boolean withFriends) {
+        return new TreeSet<>(ids).stream()
+                .map(map::get)
+                .filter(Objects::nonNull)
+                .map(user -> withFriends ? withFriends(user) : user.toBuilder().friends(new HashSet<>()).build())
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public Set<Integer> getExistingIds(Collection<Integer> ids) {
+        return ids.stream()
+                .filter(map::containsKey)
+                .collect(Collectors.toSet());
+    }
+
+    @Override
+    public List<User> getCommonFriends(int userId, int otherId) {
+        getById(userId);
+        getById(otherId);
+        List<User> commonFriends = new ArrayList<>();
+        for (int friendId : AdjacencyStore.intersect(friends.neighbours(userId), friends.neighbours(otherId))) {
+            User friend = map.get(friendId);
+            if (friend != null) {
+                commonFriends.add(withFriends(friend));
+            }
+        }
+        return commonFriends;
+    }
+
+    @Override
+    public boolean addFriendship(int userId, int friendId) {
+        checkExists(friendId);
+        boolean[] isAdded = new boolean[1];
+        map.compute(userId, (id, user) -> {
+            if (user == null) {
+                throw new NotFoundException(String.format("User with id=%d not found", id));
+            }
+            isAdded[0] = friends.add(id, friendId);
+            return isAdded[0] ? withNextVersion(user) : user;
+        });
+        return isAdded[0];
+    }
+
+    @Override
+    public boolean removeFriendship(int userId, int friendId) {
+        checkExists(friendId);
+        boolean[] isRemoved = new boolean[1];
+        map.compute(userId, (id, user) -> {
+            if (user == null) {
+                throw new NotFoundException(String.format("User with id=%d not found", id));
+            }
+            isRemoved[0] = friends.remove(id, friendId);
+            return isRemoved[0] ? withNextVersion(user) : user;
+        });
+        return isRemoved[0];
+    }
+
+    @Override
+    public int addFriendships(Collection<Friendship> friendships) {
+        int added = 0;
+        for (Friendship friendship : friendships) {
+            if (addFriendship(friendship.getUserId(), friendship.getFriendId())) {
+                added++;
+            }
+        }
+        return added;
+    }
+
+    @Override
+    public Map<Integer, Integer> getFriendCandidates(int userId, int fanOutCap, int limit) {
+        checkExists(userId);
+        return friends.rankSecondDegree(userId, fanOutCap, limit);
+    }
+
+    @Override
+    public List<Integer> getIdsWithFriend(int friendId) {
+        return Arrays.stream(friends.reverseNeighbours(friendId))
+                .boxed()
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Integer> getFriendIds(int userId, int afterId, int limit) {
+        checkExists(userId);
+        return Arrays.stream(friends.neighbours(userId))
+                .filter(friendId -> friendId > afterId)
+                .limit(limit)
+                .boxed()
+                .collect(Collectors.toList());
     }
 
     @Override
     public void clearDB() {
         map.clear();
-        nextId = new AtomicInteger(0);
+        friends.clear();
+        nextId.set(0);
+    }
+
+    private User withFriends(User user) {
+        return user.toBuilder()
+                .friends(AdjacencyStore.toSet(friends.neighbours(user.getId())))
+                .build();
+    }
+
+    private void checkExists(int id) {
+        if (!map.containsKey(id)) {
+            throw new NotFoundException(String.format("User with id=%d not found", id));
+        }
+    }
+
+    private User withNextVersion(User user) {
+        return user.toBuilder()
+                .version(user.getVersion() + 1)
+                .build();
+    }
+
+    private User withoutFriends(User user, int id, int version) {
+        return user.toBuilder()
+                .id(id)
+                .version(version)
+                .friends(Set.of())
+                .build();
     }
 }
@@ -2,15 +2,24 @@ package ru.yandex.practicum.filmorate.storage.user.impl;
 
 import lombok.RequiredArgsConstructor;
 import lombok.Value;
+import lombok.experimental.NonFinal;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
-import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.exception.ConflictException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.GeneratedKeys;
+import ru.yandex.practicum.filmorate.storage.InClause;
+import ru.yandex.practicum.filmorate.storage.graph.AdjacencyStore;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
 import java.sql.Date;
@@ -18,17 +27,54 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
 
 @Slf4j
 @Value
+@NonFinal
 @RequiredArgsConstructor
 @Component
 @Qualifier("userDbStorage")
 public class UserDbStorage implements UserStorage {
+    private static final String SELECT_USERS = "SELECT u.* FROM \"user\" AS u";
+    private static final String SELECT_FRIENDS = "SELECT user_id, friend_id FROM user_friends";
+    private static final String COMMON_FRIENDS_JOIN = " JOIN user_friends AS a ON a.friend_id = u.id AND a.user_id = ?" +
+            " JOIN user_friends AS b ON b.friend_id = u.id AND b.user_id = ?";
+    private static final String COMMON_FRIENDS_CONDITION = " WHERE user_id IN (SELECT a.friend_id FROM user_friends AS a" +
+            " JOIN user_friends AS b ON b.friend_id = a.friend_id WHERE a.user_id = ? AND b.user_id = ?)";
+    private static final String INSERT_USER = "INSERT INTO \"user\" (name, login, email, birthday) VALUES (?, ?, ?, ?)";
+    private static final String DELETE_USER_FRIENDS = "DELETE FROM user_friends WHERE user_id = ?";
+    private static final String INSERT_USER_FRIEND = "INSERT INTO user_friends (user_id, friend_id) VALUES (?, ?)";
+    private static final String INSERT_FRIENDSHIP = "INSERT INTO user_friends (user_id, friend_id) SELECT ?, ? " +
+            "WHERE NOT EXISTS (SELECT 1 FROM user_friends WHERE user_id = ? AND friend_id = ?)";
+    private static final String DELETE_FRIENDSHIP = "DELETE FROM user_friends WHERE user_id = ? AND friend_id = ?";
+    private static final String UPDATE_USER = "SELECT version FROM FINAL TABLE (UPDATE \"user\" SET name = ?, " +
+            "login = ?, email = ?, birthday = ?, version = version + 1 WHERE id = ? AND version = COALESCE(?, version))";
+    private static final String BUMP_VERSION = "UPDATE \"user\" SET version = version + 1 WHERE id = ?";
+    private static final String COUNT_BY_ID = "SELECT COUNT(*) FROM \"user\" WHERE id = ?";
+    private static final String SELECT_EXISTING_IDS = "SELECT id FROM \"user\" WHERE id IN (";
+    private static final String PAGE_CONDITION = " WHERE u.id > ? ORDER BY u.id LIMIT ?";
+    private static final String PAGE_FRIEND_CONDITION = " WHERE user_id IN " +
+            "(SELECT id FROM \"user\" WHERE id > ? ORDER BY id LIMIT ?)";
+    private static final String SELECT_FRIEND_IDS = "SELECT friend_id FROM user_friends WHERE user_id = ? " +
+            "ORDER BY friend_id";
+    private static final String SELECT_SECOND_DEGREE = "SELECT f2.user_id AS via, f2.friend_id AS target " +
+            "FROM user_friends AS f1 JOIN user_friends AS f2 ON f2.user_id = f1.friend_id WHERE f1.user_id = ?";
+    private static final String SELECT_FRIEND_IDS_PAGE = "SELECT friend_id FROM user_friends " +
+            "WHERE user_id = ? AND friend_id > ? ORDER BY friend_id LIMIT ?";
+    private static final String SELECT_IDS_WITH_FRIEND = "SELECT user_id FROM user_friends WHERE friend_id = ?";
+    private static final int BATCH_SIZE = 500;
+
     JdbcTemplate jdbcTemplate;
+    TransactionTemplate transactionTemplate;
 
     @Override
     public void clearDB() {
@@ -36,74 +82,290 @@ public class UserDbStorage implements UserStorage {
 
     @Override
     public List<User> getAll() {
-        String sqlQuery = "SELECT * FROM \"user\"";
-        return jdbcTemplate.query(sqlQuery, this::mapRow);
+        return loadUsers("", "");
+    }
+
+    @Override
+    public List<User> getPage(int afterId, int limit) {
+        return loadUsers(PAGE_CONDITION, PAGE_FRIEND_CONDITION, afterId, limit);
     }
 
     @Override
     public User add(User user) {
-        String sqlQuery = "insert into \"user\" (name, login, email, birthday) " +
-                "values (?, ?, ?, ?)";
-        KeyHolder keyHolder = new GeneratedKeyHolder();
-        jdbcTemplate.update(connection -> {
-            PreparedStatement stmt = connection.prepareStatement(sqlQuery, new String[]{"id"});
-            stmt.setString(1, user.getName());
-            stmt.setString(2, user.getLogin());
-            stmt.setString(3, user.getEmail());
-            stmt.setDate(4, Date.valueOf(user.getBirthday()));
-            return stmt;
-        }, keyHolder);
-        int newId = keyHolder.getKey().intValue();
+        int newId = transactionTemplate.execute(status -> {
+            KeyHolder keyHolder = new GeneratedKeyHolder();
+            jdbcTemplate.update(connection -> {
+                PreparedStatement stmt = connection.prepareStatement(INSERT_USER, new String[]{"id"});
+                stmt.setString(1, user.getName());
+                stmt.setString(2, user.getLogin());
+                stmt.setString(3, user.getEmail());
+                stmt.setDate(4, Date.valueOf(user.getBirthday()));
+                return stmt;
+            }, keyHolder);
+            int id = keyHolder.getKey().intValue();
 
-        updateUserFriends(user, newId);
+            updateUserFriends(user, id);
+            return id;
+        });
 
-        return getById(newId);
+        return user.toBuilder()
+                .id(newId)
+                .version(0)
+                .friends(new HashSet<>(user.getFriends()))
+                .build();
+    }
+
+    @Override
+    public List<Integer> addAll(List<User> users) {
+        return transactionTemplate.execute(status -> {
+            List<Integer> ids = jdbcTemplate.execute((ConnectionCallback<List<Integer>>) connection -> {
+                try (PreparedStatement stmt = connection.prepareStatement(INSERT_USER, new String[]{"id"})) {
+                    for (User user : users) {
+                        stmt.setString(1, user.getName());
+                        stmt.setString(2, user.getLogin());
+                        stmt.setString(3, user.getEmail());
+                        stmt.setDate(4, user.getBirthday() == null ? null : Date.valueOf(user.getBirthday()));
+                        stmt.addBatch();
+                    }
+                    stmt.executeBatch();
+                    return GeneratedKeys.ids(stmt, users.size());
+                }
+            });
+
+            List<Object[]> friends = new ArrayList<>();
+            for (int i = 0; i < users.size(); i++) {
+                int userId = ids.get(i);
+                users.get(i).getFriends().forEach(friendId -> friends.add(new Object[]{userId, friendId}));
+            }
+            if (!friends.isEmpty()) {
+                jdbcTemplate.batchUpdate(INSERT_USER_FRIEND, friends);
+            }
+            return ids;
+        });
     }
 
     @Override
     public User update(User user) {
-        String sqlQuery = "update \"user\" set name = ?, login = ?, email = ?, birthday = ? WHERE id = ?";
-        jdbcTemplate.update(sqlQuery, user.getName(), user.getLogin(), user.getEmail(), Date.valueOf(user.getBirthday()), user.getId());
+        int version = transactionTemplate.execute(status -> {
+            List<Integer> versions = jdbcTemplate.queryForList(UPDATE_USER, Integer.class, user.getName(),
+                    user.getLogin(), user.getEmail(), Date.valueOf(user.getBirthday()), user.getId(),
+                    user.getVersion());
+            if (versions.isEmpty()) {
+                checkExists(user.getId());
+                throw new ConflictException(String.format("User with id=%d was modified, expected version=%d",
+                        user.getId(), user.getVersion()));
+            }
 
-        updateUserFriends(user, user.getId());
+            updateUserFriends(user, user.getId());
+            return versions.get(0);
+        });
 
-        return getById(user.getId());
+        return user.toBuilder()
+                .version(version)
+                .friends(new HashSet<>(user.getFriends()))
+                .build();
     }
 
     @Override
     public User getById(int id) {
-        String sqlQuery = "SELECT * FROM \"user\" WHERE id = ?";
+        List<User> users = loadUsers(" WHERE u.id = ?", " WHERE user_id = ?", id);
+        if (users.isEmpty()) {
+            throw new NotFoundException(String.format("User with id=%d not found", id));
+        }
+        return users.get(0);
+    }
+
+    @Override
+    public List<User> getByIds(Collection<Integer> ids) {
+        return getByIds(ids, true);
+    }
+
+    @Override
+    public List<User> getByIds(Collection<Integer> ids, boolean withFriends) {
+        List<User> users = new ArrayList<>(ids.size());
+        for (Object[] chunk : InClause.chunks(new TreeSet<>(ids))) {
+            String placeholders = InClause.placeholders(chunk);
+            String friendCondition = withFriends ? " WHERE user_id IN (" + placeholders + ")" : null;
+            users.addAll(loadUsers(" WHERE u.id IN (" + placeholders + ")", friendCondition, chunk));
+        }
+        return users;
+    }
+
+    @Override
+    public Set<Integer> getExistingIds(Collection<Integer> ids) {
+        Set<Integer> existing = new HashSet<>();
+        for (Object[] chunk : InClause.chunks(ids)) {
+            jdbcTemplate.query(SELECT_EXISTING_IDS + InClause.placeholders(chunk) + ")",
+                    (RowCallbackHandler) rs -> existing.add(rs.getInt("id")), chunk);
+        }
+        return existing;
+    }
+
+    @Override
+    public List<User> getCommonFriends(int userId, int otherId) {
+        checkExists(userId);
+        checkExists(otherId);
+        return loadUsers(COMMON_FRIENDS_JOIN, COMMON_FRIENDS_CONDITION, userId, otherId);
+    }
+
+    @Override
+    public boolean addFriendship(int userId, int friendId) {
+        checkExists(userId);
+        checkExists(friendId);
         try {
-            return jdbcTemplate.queryForObject(sqlQuery, this::mapRow, id);
-        } catch (EmptyResultDataAccessException e) {
+            return transactionTemplate.execute(status -> {
+                boolean isAdded = jdbcTemplate.update(INSERT_FRIENDSHIP, userId, friendId, userId, friendId) > 0;
+                if (isAdded) {
+                    jdbcTemplate.update(BUMP_VERSION, userId);
+                }
+                return isAdded;
+            });
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public boolean removeFriendship(int userId, int friendId) {
+        checkExists(userId);
+        checkExists(friendId);
+        return transactionTemplate.execute(status -> {
+            boolean isRemoved = jdbcTemplate.update(DELETE_FRIENDSHIP, userId, friendId) > 0;
+            if (isRemoved) {
+                jdbcTemplate.update(BUMP_VERSION, userId);
+            }
+            return isRemoved;
+        });
+    }
+
+    @Override
+    public int addFriendships(Collection<Friendship> friendships) {
+        List<Friendship> friendshipList = new ArrayList<>(friendships);
+        return transactionTemplate.execute(status -> {
+            int[][] counts = jdbcTemplate.batchUpdate(INSERT_FRIENDSHIP, friendshipList, BATCH_SIZE,
+                    (ps, friendship) -> {
+                        ps.setInt(1, friendship.getUserId());
+                        ps.setInt(2, friendship.getFriendId());
+                        ps.setInt(3, friendship.getUserId());
+                        ps.setInt(4, friendship.getFriendId());
+                    });
+            Set<Integer> changedUsers = new TreeSet<>();
+            int added = 0;
+            int index = 0;
+            for (int[] batch : counts) {
+                for (int count : batch) {
+                    if (count > 0) {
+                        changedUsers.add(friendshipList.get(index).getUserId());
+                        added++;
+                    }
+                    index++;
+                }
+            }
+            if (!changedUsers.isEmpty()) {
+                jdbcTemplate.batchUpdate(BUMP_VERSION, changedUsers, BATCH_SIZE, (ps, userId) -> ps.setInt(1, userId));
+            }
+            return added;
+        });
+    }
+
+    @Override
+    public Map<Integer, Integer> getFriendCandidates(int userId, int fanOutCap, int limit) {
+        checkExists(userId);
+        int[] direct = jdbcTemplate.queryForList(SELECT_FRIEND_IDS, Integer.class, userId).stream()
+                .mapToInt(Integer::intValue)
+                .toArray();
+        if (direct.length == 0) {
+            return Map.of();
+        }
+        // aggregating in SQL is several times slower than streaming the raw edges and counting them here
+        SecondDegreeCollector collector = new SecondDegreeCollector(direct, fanOutCap);
+        jdbcTemplate.query(SELECT_SECOND_DEGREE, collector, userId);
+        return AdjacencyStore.rankByCount(collector.targets, collector.size, AdjacencyStore.insert(direct, userId),
+                limit);
+    }
+
+    @Override
+    public List<Integer> getIdsWithFriend(int friendId) {
+        return jdbcTemplate.queryForList(SELECT_IDS_WITH_FRIEND, Integer.class, friendId);
+    }
+
+    @Override
+    public List<Integer> getFriendIds(int userId, int afterId, int limit) {
+        checkExists(userId);
+        return jdbcTemplate.queryForList(SELECT_FRIEND_IDS_PAGE, Integer.class, userId, afterId, limit);
+    }
+
+    private void checkExists(int id) {
+        Integer count = jdbcTemplate.queryForObject(COUNT_BY_ID, Integer.class, id);
+        if (count == null || count == 0) {
             throw new NotFoundException(String.format("User with id=%d not found", id));
         }
     }
 
-    private User mapRow(ResultSet rs, int rowNum) throws SQLException {
+    private List<User> loadUsers(String userCondition, String friendCondition, Object... args) {
+        Map<Integer, User> users = new LinkedHashMap<>();
+        jdbcTemplate.query(SELECT_USERS + userCondition, (RowCallbackHandler) rs -> {
+            User user = mapRow(rs);
+            users.put(user.getId(), user);
+        }, args);
+        if (users.isEmpty() || friendCondition == null) {
+            return new ArrayList<>(users.values());
+        }
+
+        jdbcTemplate.query(SELECT_FRIENDS + friendCondition, (RowCallbackHandler) rs -> {
+            User user = users.get(rs.getInt("user_id"));
+            if (user != null) {
+                user.getFriends().add(rs.getInt("friend_id"));
+            }
+        }, args);
+
+        return new ArrayList<>(users.values());
+    }
+
+    private User mapRow(ResultSet rs) throws SQLException {
         Date date = rs.getDate("birthday");
         LocalDate birthday = date == null ? null : date.toLocalDate();
-        int id = rs.getInt("id");
         return User.builder()
-                .id(id)
+                .id(rs.getInt("id"))
+                .version(rs.getInt("version"))
                 .name(rs.getString("name"))
                 .login(rs.getString("login"))
                 .email(rs.getString("email"))
                 .birthday(birthday)
-                .friends(getFriendsByUser(id))
                 .build();
     }
 
-    private Set<Integer> getFriendsByUser(int userId) {
-        String sql = "SELECT friend_id FROM user_friends WHERE user_id = ?";
-        return new HashSet<>(jdbcTemplate.queryForList(sql, Integer.class, userId));
+    private static class SecondDegreeCollector implements RowCallbackHandler {
+        private final int[] direct;
+        private final int[] followed;
+        private final int fanOutCap;
+        private int[] targets = new int[1024];
+        private int size;
+
+        SecondDegreeCollector(int[] direct, int fanOutCap) {
+            this.direct = direct;
+            this.followed = new int[direct.length];
+            this.fanOutCap = fanOutCap;
+        }
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            int via = Arrays.binarySearch(direct, rs.getInt("via"));
+            if (via < 0 || followed[via]++ >= fanOutCap) {
+                return;
+            }
+            if (size == targets.length) {
+                targets = Arrays.copyOf(targets, size * 2);
+            }
+            targets[size++] = rs.getInt("target");
+        }
     }
 
     private void updateUserFriends(User user, int userId) {
-        jdbcTemplate.update("DELETE FROM user_friends WHERE user_id = ?", user.getId());
+        jdbcTemplate.update(DELETE_USER_FRIENDS, userId);
 
         if (!user.getFriends().isEmpty()) {
-            jdbcTemplate.batchUpdate("INSERT INTO user_friends (user_id, friend_id) VALUES (?, ?)",
+            jdbcTemplate.batchUpdate(INSERT_USER_FRIEND,
                     user.getFriends(),
                     50,
                     (PreparedStatement ps, Integer friendId) -> {
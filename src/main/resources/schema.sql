@@ -5,7 +5,9 @@ CREATE TABLE IF NOT EXISTS film
     "description"  varchar(254),
     "release_date" date,
     "duration"     int,
-    "mpa_id"       bigint
+    "mpa_id"       bigint,
+    "like_count"   int DEFAULT 0 NOT NULL,
+    "version"      int DEFAULT 0 NOT NULL
 );
 
 CREATE TABLE IF NOT EXISTS "user"
@@ -14,7 +16,8 @@ CREATE TABLE IF NOT EXISTS "user"
     "email"    varchar(50),
     "login"    varchar(50) NOT NULL UNIQUE,
     "name"     varchar(50),
-    "birthday" date
+    "birthday" date,
+    "version"  int DEFAULT 0 NOT NULL
 );
 
 CREATE TABLE IF NOT EXISTS user_friends
@@ -51,23 +54,57 @@ CREATE TABLE IF NOT EXISTS mpa
     "name" varchar(50)
 );
 
+CREATE TABLE IF NOT EXISTS schema_migration
+(
+    "name" varchar(100) PRIMARY KEY
+);
+
+ALTER TABLE film
+    ADD COLUMN IF NOT EXISTS "like_count" int DEFAULT 0 NOT NULL;
+
 ALTER TABLE film
-    ADD FOREIGN KEY ("mpa_id") REFERENCES mpa ("id");
+    ADD COLUMN IF NOT EXISTS "version" int DEFAULT 0 NOT NULL;
+
+ALTER TABLE "user"
+    ADD COLUMN IF NOT EXISTS "version" int DEFAULT 0 NOT NULL;
+
+ALTER TABLE film_likes
+    ADD COLUMN IF NOT EXISTS "created_at" timestamp DEFAULT LOCALTIMESTAMP NOT NULL;
+
+DROP INDEX IF EXISTS film_like_count_idx;
+
+CREATE INDEX IF NOT EXISTS film_likes_film_id_idx ON film_likes ("film_id", "user_id");
+
+CREATE INDEX IF NOT EXISTS film_likes_created_at_idx ON film_likes ("created_at");
+
+CREATE INDEX IF NOT EXISTS user_friends_friend_id_idx ON user_friends ("friend_id", "user_id");
+
+CREATE INDEX IF NOT EXISTS film_genres_genre_id_idx ON film_genres ("genre_id", "film_id");
+
+ALTER TABLE film
+    ADD CONSTRAINT IF NOT EXISTS film_mpa_fk FOREIGN KEY ("mpa_id") REFERENCES mpa ("id");
 
 ALTER TABLE user_friends
-    ADD FOREIGN KEY ("user_id") REFERENCES "user" ("id");
+    ADD CONSTRAINT IF NOT EXISTS user_friends_user_fk FOREIGN KEY ("user_id") REFERENCES "user" ("id");
 
 ALTER TABLE user_friends
-    ADD FOREIGN KEY ("friend_id") REFERENCES "user" ("id");
+    ADD CONSTRAINT IF NOT EXISTS user_friends_friend_fk FOREIGN KEY ("friend_id") REFERENCES "user" ("id");
 
 ALTER TABLE film_likes
-    ADD FOREIGN KEY ("user_id") REFERENCES "user" ("id");
+    ADD CONSTRAINT IF NOT EXISTS film_likes_user_fk FOREIGN KEY ("user_id") REFERENCES "user" ("id");
 
 ALTER TABLE film_likes
-    ADD FOREIGN KEY ("film_id") REFERENCES film ("id");
+    ADD CONSTRAINT IF NOT EXISTS film_likes_film_fk FOREIGN KEY ("film_id") REFERENCES film ("id");
 
 ALTER TABLE film_genres
-    ADD FOREIGN KEY ("film_id") REFERENCES film ("id");
+    ADD CONSTRAINT IF NOT EXISTS film_genres_film_fk FOREIGN KEY ("film_id") REFERENCES film ("id");
 
 ALTER TABLE film_genres
-    ADD FOREIGN KEY ("genre_id") REFERENCES genre ("id");
+    ADD CONSTRAINT IF NOT EXISTS film_genres_genre_fk FOREIGN KEY ("genre_id") REFERENCES genre ("id");
+
+-- one-time backfill of like_count for databases created before the column; the marker row keeps it from rerunning
+UPDATE film AS f
+SET "like_count" = (SELECT COUNT(*) FROM film_likes AS fl WHERE fl."film_id" = f."id")
+WHERE NOT EXISTS (SELECT 1 FROM schema_migration WHERE "name" = 'film_like_count_backfill');
+
+MERGE INTO schema_migration ("name") KEY ("name") VALUES ('film_like_count_backfill');
@@ -0,0 +1,99 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@DirtiesContext
+@ActiveProfiles("test")
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:import;IGNORECASE=TRUE;DATABASE_TO_UPPER=false",
+        "filmorate.import.chunk-size=2"
+})
+@AutoConfigureMockMvc
+class ImportTest {
+    @Autowired
+    MockMvc mockMvc;
+
+    @Test
+    void testImportInChunksSkippingInvalidRecords() throws Exception {
+        mockMvc.perform(post("/import/users").contentType("text/csv")
+                        .content("email,login,name,birthday\n"
+                                + "one@mail.ru,one,\"One, the first\",1990-01-01\n"
+                                + "two@mail.ru,two,,1991-02-02\n"
+                                + "bad-email,three,,1992-03-03\n"
+                                + "four@mail.ru,four,Four,1993-04-04\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(3))
+                .andExpect(jsonPath("$.rejected").value(1))
+                .andExpect(jsonPath("$.errors[0]").value(containsString("email")));
+
+        mockMvc.perform(post("/import/films").contentType("application/x-ndjson")
+                        .content("{\"name\":\"First\",\"releaseDate\":\"2000-01-01\",\"duration\":90,"
+                                + "\"mpa\":{\"id\":1},\"genres\":[{\"id\":1},{\"id\":2}]}\n"
+                                + "{\"name\":\"Old\",\"releaseDate\":\"1800-01-01\",\"duration\":90,\"mpa\":{\"id\":1}}\n"
+                                + "{\"name\":\"Unrated\",\"releaseDate\":\"2000-01-01\",\"duration\":90,\"mpa\":{\"id\":99}}\n"
+                                + "{\"name\":\"Second\",\"releaseDate\":\"2001-01-01\",\"duration\":\"long\"}\n"
+                                + "{\"name\":\"Liked\",\"releaseDate\":\"2000-01-01\",\"duration\":90,"
+                                + "\"mpa\":{\"id\":1},\"likes\":[1,42]}\n"
+                                + "{\"name\":\"Third\",\"releaseDate\":\"2002-01-01\",\"duration\":100,\"mpa\":{\"id\":2}}\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(2))
+                .andExpect(jsonPath("$.rejected").value(4))
+                .andExpect(jsonPath("$.errors[3]").value("Film 'Liked' refers to missing users [42]"));
+
+        mockMvc.perform(post("/import/likes").contentType("text/csv")
+                        .content("filmId,userId\n1,1\n1,2\n2,1\n1,1\n9,1\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(4))
+                .andExpect(jsonPath("$.rejected").value(1));
+
+        mockMvc.perform(post("/import/friendships").contentType("application/x-ndjson")
+                        .content("{\"userId\":1,\"friendId\":2}\n{\"userId\":1,\"friendId\":3}\n"
+                                + "{\"userId\":2,\"friendId\":7}\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(2))
+                .andExpect(jsonPath("$.rejected").value(1));
+
+        mockMvc.perform(get("/users/2"))
+                .andExpect(jsonPath("$.name").value("two"));
+        mockMvc.perform(get("/users/1"))
+                .andExpect(jsonPath("$.name").value("One, the first"))
+                .andExpect(jsonPath("$.friends", hasSize(2)));
+        mockMvc.perform(get("/films/1"))
+                .andExpect(jsonPath("$.genres", hasSize(2)))
+                .andExpect(jsonPath("$.likes", hasSize(2)));
+        mockMvc.perform(get("/films/popular?count=1"))
+                .andExpect(jsonPath("$[0].id").value(1));
+
+        mockMvc.perform(post("/import/users").contentType("application/x-ndjson")
+                        .content("{\"email\":\"five@mail.ru\",\"login\":\"five\",\"birthday\":\"1994-05-05\","
+                                + "\"friends\":[1,42]}\n"
+                                + "{\"email\":\"six@mail.ru\",\"login\":\"six\",\"birthday\":\"1995-06-06\","
+                                + "\"friends\":[1]}\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(1))
+                .andExpect(jsonPath("$.rejected").value(1))
+                .andExpect(jsonPath("$.errors[0]").value("User 'five' refers to missing users [42]"));
+        mockMvc.perform(get("/users/4"))
+                .andExpect(jsonPath("$.login").value("six"))
+                .andExpect(jsonPath("$.friends", hasSize(1)));
+    }
+
+    @Test
+    void testFilmsAreNotImportedFromCsv() throws Exception {
+        mockMvc.perform(post("/import/films").contentType("text/csv").content("name\nFilm\n"))
+                .andExpect(status().isUnsupportedMediaType());
+    }
+}
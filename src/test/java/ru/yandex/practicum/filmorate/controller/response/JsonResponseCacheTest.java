@@ -0,0 +1,43 @@
+package ru.yandex.practicum.filmorate.controller.response;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JsonResponseCacheTest {
+    private final JsonResponseCache cache = new JsonResponseCache(new ObjectMapper(), new SimpleMeterRegistry());
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void testNewKeysAreCachedBeyondCapacity() {
+        for (int i = 0; i < 1000; i++) {
+            get("key" + i, 1);
+        }
+        get("key999", 1);
+
+        assertThat(loads.get()).isEqualTo(1000);
+        assertThat(cache.size()).isEqualTo(256);
+    }
+
+    @Test
+    void testNewerVersionDropsStaleEntries() {
+        get("a", 1);
+        get("b", 1);
+        get("a", 2);
+
+        assertThat(cache.size()).isEqualTo(1);
+        get("a", 2);
+        assertThat(loads.get()).isEqualTo(3);
+    }
+
+    private byte[] get(String key, long version) {
+        return cache.get(key, version, () -> {
+            loads.incrementAndGet();
+            return key;
+        });
+    }
+}
@@ -0,0 +1,27 @@
+package ru.yandex.practicum.filmorate.controller.response;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PreferTest {
+
+    @Test
+    void testMinimalIsDetectedAmongOtherPreferences() {
+        assertThat(Prefer.isMinimal(null)).isFalse();
+        assertThat(Prefer.isMinimal("return=representation")).isFalse();
+        assertThat(Prefer.isMinimal("respond-async, return=minimal")).isTrue();
+        assertThat(Prefer.isMinimal("RETURN=MINIMAL")).isTrue();
+    }
+
+    @Test
+    void testMinimalResponseCarriesOnlyId() {
+        ResponseEntity<Object> minimal = Prefer.respond("return=minimal", "entity", String::length);
+        ResponseEntity<Object> full = Prefer.respond(null, "entity", String::length);
+
+        assertThat(minimal.getBody()).isEqualTo(new IdResponse(6));
+        assertThat(minimal.getHeaders().getFirst("Preference-Applied")).isEqualTo("return=minimal");
+        assertThat(full.getBody()).isEqualTo("entity");
+    }
+}
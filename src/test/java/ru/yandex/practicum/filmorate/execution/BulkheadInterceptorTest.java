@@ -0,0 +1,47 @@
+package ru.yandex.practicum.filmorate.execution;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import ru.yandex.practicum.filmorate.exception.BulkheadFullException;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BulkheadInterceptorTest {
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+
+    @Test
+    void testRejectsWhenBulkheadIsFullAndReleasesOnCompletion() throws Exception {
+        ExecutionProperties properties = new ExecutionProperties();
+        properties.setBulkheads(Map.of("films", 1));
+        properties.setAcquireTimeout(Duration.ZERO);
+        BulkheadInterceptor interceptor = new BulkheadInterceptor(properties, registry);
+        MockHttpServletRequest first = new MockHttpServletRequest("GET", "/films/popular");
+        MockHttpServletRequest second = new MockHttpServletRequest("GET", "/films/1");
+
+        assertThat(interceptor.preHandle(first, response, null)).isTrue();
+        assertThatThrownBy(() -> interceptor.preHandle(second, response, null))
+                .isInstanceOf(BulkheadFullException.class);
+        assertThat(interceptor.preHandle(new MockHttpServletRequest("GET", "/genres"), response, null)).isTrue();
+
+        interceptor.afterCompletion(first, response, null, null);
+        assertThat(interceptor.preHandle(second, response, null)).isTrue();
+        assertThat(registry.get("filmorate.bulkhead.rejected").tag("bulkhead", "films").counter().count())
+                .isEqualTo(1);
+        assertThat(registry.get("filmorate.bulkhead.available").tag("bulkhead", "films").gauge().value())
+                .isZero();
+    }
+
+    @Test
+    void testBulkheadIsFirstPathSegment() {
+        assertThat(BulkheadInterceptor.bulkheadOf("/films/1/like/2")).isEqualTo("films");
+        assertThat(BulkheadInterceptor.bulkheadOf("/genres")).isEqualTo("genres");
+        assertThat(BulkheadInterceptor.bulkheadOf("/")).isEmpty();
+    }
+}
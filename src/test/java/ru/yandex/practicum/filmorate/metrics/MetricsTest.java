@@ -0,0 +1,59 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@DirtiesContext
+@ActiveProfiles("test")
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:metrics;IGNORECASE=TRUE;DATABASE_TO_UPPER=false")
+@AutoConfigureMockMvc
+@AutoConfigureMetrics
+class MetricsTest {
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    MeterRegistry registry;
+
+    @Test
+    void testRequestIsTimedPerLayerAndCountsQueries() throws Exception {
+        mockMvc.perform(get("/users/100")).andExpect(status().isNotFound());
+
+        Timer service = registry.get("filmorate.service")
+                .tags("class", "UserService", "method", "getById", "exception", "NotFoundException")
+                .timer();
+        Timer storage = registry.get("filmorate.storage")
+                .tags("class", "UserDbStorage", "method", "getById", "exception", "NotFoundException")
+                .timer();
+        assertThat(service.count()).isEqualTo(1);
+        assertThat(storage.count()).isEqualTo(1);
+        assertThat(registry.get("filmorate.http.sql.queries")
+                .tags("method", "GET", "uri", "/users/{id}")
+                .summary()
+                .totalAmount()).isEqualTo(1);
+    }
+
+    @Test
+    void testPrometheusEndpoint() throws Exception {
+        mockMvc.perform(get("/genres")).andExpect(status().isOk());
+
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("filmorate_service_seconds_count")))
+                .andExpect(content().string(containsString("hikaricp_connections")));
+    }
+}
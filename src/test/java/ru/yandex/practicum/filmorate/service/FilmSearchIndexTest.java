@@ -0,0 +1,119 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.storage.film.impl.InMemoryFilmStorage;
+
+import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FilmSearchIndexTest {
+    private static final Set<SearchField> ALL = EnumSet.allOf(SearchField.class);
+
+    private InMemoryFilmStorage storage;
+    private PopularityIndex popularityIndex;
+    private FilmSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        storage = new InMemoryFilmStorage();
+        add("Ёлки", "Новогодняя комедия", Set.of());
+        add("Звёздные войны", "Космическая опера о войне", Set.of(1, 2, 3));
+        add("Война и мир", "Экранизация романа", Set.of());
+        add("Star Wars", "Space opera", Set.of());
+        popularityIndex = new PopularityIndex(storage);
+        popularityIndex.rebuild();
+        index = new FilmSearchIndex(storage, popularityIndex, 0.1);
+        index.rebuild();
+    }
+
+    @Test
+    void testTokenizeFoldsCaseAndYo() {
+        assertThat(FilmSearchIndex.tokenize("Звёздные  ВОЙНЫ: эпизод-4")).containsExactly("звездные", "войны",
+                "эпизод", "4");
+        assertThat(FilmSearchIndex.tokenize(null)).isEmpty();
+    }
+
+    @Test
+    void testSearchMatchesAllTermsWithLastAsPrefix() {
+        assertThat(index.search("елки", ALL, 10)).containsExactly(1);
+        assertThat(index.search("ЗВЕЗДНЫЕ вой", ALL, 10)).containsExactly(2);
+        assertThat(index.search("star war", ALL, 10)).containsExactly(4);
+        assertThat(index.search("star peace", ALL, 10)).isEmpty();
+        assertThat(index.search("  ", ALL, 10)).isEmpty();
+    }
+
+    @Test
+    void testSearchRestrictsFields() {
+        assertThat(index.search("опера", EnumSet.of(SearchField.TITLE), 10)).isEmpty();
+        assertThat(index.search("опера", EnumSet.of(SearchField.DESCRIPTION), 10)).containsExactly(2);
+    }
+
+    @Test
+    void testTitleMatchesAndLikesRankFirst() {
+        assertThat(index.search("войн", ALL, 10)).containsExactly(2, 3);
+        assertThat(index.search("войн", EnumSet.of(SearchField.TITLE), 1)).containsExactly(2);
+
+        popularityIndex.adjust(3, 100);
+        assertThat(index.search("войн", EnumSet.of(SearchField.TITLE), 10)).containsExactly(3, 2);
+    }
+
+    @Test
+    void testIndexReplacesUpdatedFilm() {
+        Film updated = storage.update(storage.getById(1).toBuilder().name("Ирония судьбы").build());
+        index.index(updated);
+
+        assertThat(index.search("елки", ALL, 10)).isEmpty();
+        assertThat(index.search("ирон", ALL, 10)).containsExactly(1);
+    }
+
+    @Test
+    void testSearchDuringIndexingOfMatchingFilms() throws Exception {
+        Film template = storage.getById(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> indexing = executor.submit(() -> {
+                for (int id = 100; id < 20_000; id++) {
+                    index.index(template.toBuilder().id(id).name("Новые ёлки").build());
+                }
+            });
+            while (!indexing.isDone()) {
+                assertThat(index.search("новые елки", ALL, 10)).isNotNull();
+            }
+            indexing.get();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(index.search("новые елки", ALL, 1)).hasSize(1);
+    }
+
+    @Test
+    void testParseSearchFields() {
+        assertThat(SearchField.parse(List.of("title", " Description"))).isEqualTo(ALL);
+        assertThatThrownBy(() -> SearchField.parse(List.of("director"))).isInstanceOf(ValidationException.class);
+        assertThatThrownBy(() -> SearchField.parse(List.of())).isInstanceOf(ValidationException.class);
+    }
+
+    private void add(String name, String description, Set<Integer> likes) {
+        storage.add(Film.builder()
+                .name(name)
+                .description(description)
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(100)
+                .mpa(Mpa.builder().id(1).build())
+                .likes(likes)
+                .build());
+    }
+}
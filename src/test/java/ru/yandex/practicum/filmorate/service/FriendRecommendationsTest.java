@@ -0,0 +1,87 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.FriendRecommendation;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.user.impl.InMemoryUserStorage;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FriendRecommendationsTest {
+    private InMemoryUserStorage storage;
+    private FriendRecommendations recommendations;
+    private int loads;
+
+    @BeforeEach
+    void setUp() {
+        storage = new InMemoryUserStorage() {
+            @Override
+            public Map<Integer, Integer> getFriendCandidates(int userId, int fanOutCap, int limit) {
+                loads++;
+                return super.getFriendCandidates(userId, fanOutCap, limit);
+            }
+        };
+        recommendations = new FriendRecommendations(storage, 1000, 100);
+        for (int i = 1; i <= 5; i++) {
+            storage.add(User.builder()
+                    .login("user" + i)
+                    .email("user" + i + "@mail.ru")
+                    .birthday(LocalDate.of(1990, 1, 1))
+                    .build());
+        }
+        storage.addFriendship(1, 2);
+        storage.addFriendship(2, 3);
+        storage.addFriendship(2, 4);
+    }
+
+    @Test
+    void testRecommendsFriendsOfFriends() {
+        assertThat(recommendations.recommend(1, 10))
+                .extracting(recommendation -> recommendation.getUser().getId())
+                .containsExactly(3, 4);
+        assertThat(recommendations.recommend(1, 1))
+                .extracting(FriendRecommendation::getMutualFriends)
+                .containsExactly(1);
+        assertThatThrownBy(() -> recommendations.recommend(1, 0)).isInstanceOf(ValidationException.class);
+    }
+
+    @Test
+    void testCacheIsInvalidatedForUserAndThoseWhoFriendThem() {
+        recommendations.recommend(1, 10);
+
+        storage.addFriendship(2, 5);
+        assertThat(recommendations.recommend(1, 10)).hasSize(2);
+
+        recommendations.invalidate(2);
+        assertThat(recommendations.recommend(1, 10))
+                .extracting(recommendation -> recommendation.getUser().getId())
+                .containsExactly(3, 4, 5);
+
+        storage.addFriendship(1, 3);
+        recommendations.invalidate(1);
+        assertThat(recommendations.recommend(1, 10))
+                .extracting(recommendation -> recommendation.getUser().getId())
+                .containsExactly(4, 5);
+    }
+
+    @Test
+    void testLeastRecentlyUsedUserIsEvicted() {
+        FriendRecommendations bounded = new FriendRecommendations(storage, 1000, 2);
+        bounded.recommend(1, 10);
+        bounded.recommend(2, 10);
+        bounded.recommend(1, 10);
+        bounded.recommend(3, 10);
+        assertThat(loads).isEqualTo(3);
+
+        bounded.recommend(1, 10);
+        assertThat(loads).isEqualTo(3);
+        bounded.recommend(2, 10);
+        assertThat(loads).isEqualTo(4);
+    }
+}
@@ -0,0 +1,96 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.storage.film.impl.InMemoryFilmStorage;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LikeMatrixTest {
+    private InMemoryFilmStorage storage;
+
+    @BeforeEach
+    void setUp() {
+        storage = new InMemoryFilmStorage();
+        for (int i = 1; i <= 6; i++) {
+            storage.add(Film.builder()
+                    .name("film" + i)
+                    .releaseDate(LocalDate.of(2000, 1, 1))
+                    .duration(100)
+                    .mpa(Mpa.builder().id(1).build())
+                    .build());
+        }
+        like(1, 1, 2);
+        like(2, 1, 2, 3);
+        like(3, 1, 4, 5);
+        like(4, 6);
+    }
+
+    @Test
+    void testRecommendsFilmsOfSimilarUsers() {
+        LikeMatrix matrix = new LikeMatrix(storage, 50, 1000);
+        matrix.rebuild();
+
+        assertThat(matrix.recommend(1, 10)).containsExactly(3, 4, 5);
+        assertThat(matrix.recommend(1, 2)).containsExactly(3, 4);
+        assertThat(matrix.recommend(4, 10)).isEmpty();
+        assertThat(matrix.recommend(9, 10)).isEmpty();
+    }
+
+    @Test
+    void testNeighboursLimitKeepsMostSimilarUsers() {
+        LikeMatrix matrix = new LikeMatrix(storage, 1, 1000);
+        matrix.rebuild();
+
+        assertThat(matrix.recommend(1, 10)).containsExactly(3);
+    }
+
+    @Test
+    void testIncrementalUpdates() {
+        LikeMatrix matrix = new LikeMatrix(storage, 50, 1000);
+        matrix.rebuild();
+
+        matrix.unlike(3, 2);
+        assertThat(matrix.recommend(1, 10)).containsExactly(4, 5);
+
+        matrix.like(4, 1);
+        assertThat(matrix.recommend(1, 10)).containsExactly(5);
+
+        matrix.replaceFilmLikes(5, Set.of(4));
+        assertThat(matrix.recommend(1, 10)).isEmpty();
+        assertThat(matrix.recommend(3, 10)).containsExactly(2);
+    }
+
+    private void like(int userId, int... filmIds) {
+        for (int filmId : filmIds) {
+            storage.addLike(filmId, userId);
+        }
+    }
+
+    @Test
+    void testFanOutCapSamplesLikersAtRandomPerUser() {
+        LikeMatrix matrix = new LikeMatrix(new InMemoryFilmStorage(), 50, 1);
+        for (int userId = 1; userId <= 20; userId++) {
+            matrix.like(1, userId);
+            matrix.like(100 + userId, userId);
+        }
+        for (int userId = 21; userId <= 40; userId++) {
+            matrix.like(1, userId);
+        }
+        Set<List<Integer>> recommended = new HashSet<>();
+        for (int userId = 21; userId <= 40; userId++) {
+            List<Integer> films = matrix.recommend(userId, 1);
+            assertThat(matrix.recommend(userId, 1)).isEqualTo(films);
+            recommended.add(films);
+        }
+
+        assertThat(recommended).hasSizeGreaterThan(1);
+    }
+}
@@ -0,0 +1,112 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFacets;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.storage.film.impl.InMemoryFilmStorage;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LikeWriteBehindTest {
+    private InMemoryFilmStorage storage;
+    private LikeMatrix likeMatrix;
+    private Runnable duringApply = () -> {
+    };
+    private Film film;
+
+    @BeforeEach
+    void setUp() {
+        storage = new InMemoryFilmStorage() {
+            @Override
+            public List<Like> applyLikes(Collection<Like> added, Collection<Like> removed) {
+                duringApply.run();
+                return super.applyLikes(added, removed);
+            }
+        };
+        likeMatrix = new LikeMatrix(storage, 50, 1000);
+        film = storage.add(Film.builder()
+                .name("film")
+                .description("description")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(100)
+                .mpa(Mpa.builder().id(1).build())
+                .build());
+        likeMatrix.rebuild();
+    }
+
+    @Test
+    void testDuplicateAndCancellingEventsCoalesce() {
+        LikeWriteBehind writeBehind = new LikeWriteBehind(storage, likeMatrix, true, 100, Duration.ofHours(1));
+
+        assertThat(writeBehind.submit(film.getId(), 1, true)).isTrue();
+        assertThat(writeBehind.submit(film.getId(), 1, true)).isFalse();
+        assertThat(writeBehind.submit(film.getId(), 2, true)).isTrue();
+        assertThat(writeBehind.submit(film.getId(), 2, false)).isTrue();
+        assertThat(writeBehind.submit(film.getId(), 3, false)).isFalse();
+
+        assertThat(writeBehind.getPendingCount()).isEqualTo(1);
+        assertThat(storage.getById(film.getId()).getLikes()).isEmpty();
+        assertThat(writeBehind.overlay(storage.getById(film.getId())).getLikes()).containsExactly(1);
+        assertThat(likeMatrix.contains(film.getId(), 1)).isTrue();
+        assertThat(likeMatrix.contains(film.getId(), 2)).isFalse();
+    }
+
+    @Test
+    void testUnlikeIsQueuedBehindInFlightLike() {
+        LikeWriteBehind writeBehind = new LikeWriteBehind(storage, likeMatrix, true, 100, Duration.ofHours(1));
+        writeBehind.submit(film.getId(), 1, true);
+        duringApply = () -> {
+            duringApply = () -> {
+            };
+            assertThat(writeBehind.submit(film.getId(), 1, false)).isTrue();
+        };
+
+        writeBehind.flush();
+
+        assertThat(storage.getById(film.getId()).getLikes()).containsExactly(1);
+        assertThat(writeBehind.getPendingCount()).isEqualTo(1);
+        assertThat(writeBehind.overlay(storage.getById(film.getId())).getLikes()).isEmpty();
+
+        writeBehind.flush();
+
+        assertThat(writeBehind.getPendingCount()).isZero();
+        assertThat(storage.getById(film.getId()).getLikes()).isEmpty();
+        assertThat(likeMatrix.contains(film.getId(), 1)).isFalse();
+    }
+
+    @Test
+    void testFlushWritesPendingLikes() {
+        storage.addLike(film.getId(), 5);
+        likeMatrix.rebuild();
+        LikeWriteBehind writeBehind = new LikeWriteBehind(storage, likeMatrix, true, 2, Duration.ofHours(1));
+        writeBehind.submit(film.getId(), 1, true);
+        writeBehind.submit(film.getId(), 2, true);
+        writeBehind.submit(film.getId(), 3, true);
+        writeBehind.submit(film.getId(), 5, false);
+
+        writeBehind.flush();
+
+        assertThat(writeBehind.getPendingCount()).isZero();
+        assertThat(storage.getById(film.getId()).getLikes()).containsExactlyInAnyOrder(1, 2, 3);
+        assertThat(storage.getFacets()).extracting(FilmFacets::getLikes).containsExactly(3);
+    }
+
+    @Test
+    void testStopDrainsPendingLikes() throws InterruptedException {
+        LikeWriteBehind writeBehind = new LikeWriteBehind(storage, likeMatrix, true, 100, Duration.ofHours(1));
+        writeBehind.start();
+        writeBehind.submit(film.getId(), 1, true);
+
+        writeBehind.stop();
+
+        assertThat(storage.getById(film.getId()).getLikes()).containsExactly(1);
+    }
+}
@@ -0,0 +1,99 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFacets;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.storage.film.impl.InMemoryFilmStorage;
+
+import java.time.LocalDate;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PopularityIndexTest {
+    private InMemoryFilmStorage storage;
+    private PopularityIndex index;
+
+    @BeforeEach
+    void setUp() {
+        storage = new InMemoryFilmStorage();
+        Film film = Film.builder()
+                .name("film")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(100)
+                .mpa(Mpa.builder().id(1).build())
+                .build();
+        storage.add(film.toBuilder()
+                .likes(Set.of(1))
+                .genres(Set.of(Genre.builder().id(1).build(), Genre.builder().id(2).build()))
+                .build());
+        storage.add(film.toBuilder()
+                .likes(Set.of(1, 2, 3))
+                .releaseDate(LocalDate.of(2010, 1, 1))
+                .genres(Set.of(Genre.builder().id(1).build()))
+                .build());
+        storage.add(film.toBuilder().mpa(Mpa.builder().id(2).build()).build());
+        index = new PopularityIndex(storage);
+        index.rebuild();
+    }
+
+    @Test
+    void testGetTopOrdersByLikesThenId() {
+        assertThat(index.getTop(10)).containsExactly(2, 1, 3);
+        assertThat(index.getTop(2)).containsExactly(2, 1);
+    }
+
+    @Test
+    void testUpdateMovesFilm() {
+        index.update(new FilmFacets(3, 5, 2000, 2, Set.of()));
+        index.update(new FilmFacets(2, 0, 2010, 1, Set.of(1)));
+
+        assertThat(index.getTop(10)).containsExactly(3, 1, 2);
+    }
+
+    @Test
+    void testUpdateAddsNewFilm() {
+        index.update(new FilmFacets(4, 1, 2000, 1, Set.of()));
+
+        assertThat(index.getTop(10)).containsExactly(2, 1, 4, 3);
+    }
+
+    @Test
+    void testAdjustShiftsLikeCount() {
+        index.adjust(3, 2);
+        index.adjust(1, -1);
+        index.adjust(1, -1);
+
+        assertThat(index.getTop(10)).containsExactly(2, 3, 1);
+    }
+
+    @Test
+    void testGetTopWithFilters() {
+        assertThat(index.getTop(10, 1, null, null)).containsExactly(2, 1);
+        assertThat(index.getTop(10, 2, null, null)).containsExactly(1);
+        assertThat(index.getTop(10, null, 2000, null)).containsExactly(1, 3);
+        assertThat(index.getTop(10, null, null, 1)).containsExactly(2, 1);
+        assertThat(index.getTop(10, 1, 2000, 1)).containsExactly(1);
+        assertThat(index.getTop(1, null, 2000, null)).containsExactly(1);
+        assertThat(index.getTop(10, 5, null, null)).isEmpty();
+        assertThat(index.getTop(10, 1, 2000, 2)).isEmpty();
+    }
+
+    @Test
+    void testFilmEditMovesBetweenFilters() {
+        Film edited = storage.update(storage.getById(3).toBuilder()
+                .mpa(Mpa.builder().id(1).build())
+                .genres(Set.of(Genre.builder().id(2).build()))
+                .likes(Set.of(1, 2))
+                .build());
+        index.update(edited);
+        index.adjust(3, 1);
+
+        assertThat(index.getTop(10, null, null, 2)).isEmpty();
+        assertThat(index.getTop(10, 2, null, null)).containsExactly(3, 1);
+        assertThat(index.getTop(10, null, null, 1)).containsExactly(2, 3, 1);
+    }
+}
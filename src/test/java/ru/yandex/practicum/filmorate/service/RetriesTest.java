@@ -0,0 +1,50 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.CannotAcquireLockException;
+import ru.yandex.practicum.filmorate.exception.ConflictException;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RetriesTest {
+
+    @Test
+    void testTransientFailureIsRetried() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        boolean result = Retries.withRetry(() -> {
+            if (attempts.incrementAndGet() < Retries.MAX_ATTEMPTS) {
+                throw new CannotAcquireLockException("locked");
+            }
+            return true;
+        });
+
+        assertThat(result).isTrue();
+        assertThat(attempts).hasValue(Retries.MAX_ATTEMPTS);
+    }
+
+    @Test
+    void testRetriesAreBounded() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThatThrownBy(() -> Retries.withRetry(() -> {
+            attempts.incrementAndGet();
+            throw new CannotAcquireLockException("locked");
+        })).isInstanceOf(CannotAcquireLockException.class);
+        assertThat(attempts).hasValue(Retries.MAX_ATTEMPTS);
+    }
+
+    @Test
+    void testConflictIsNotRetried() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThatThrownBy(() -> Retries.withRetry(() -> {
+            attempts.incrementAndGet();
+            throw new ConflictException("stale");
+        })).isInstanceOf(ConflictException.class);
+        assertThat(attempts).hasValue(1);
+    }
+}
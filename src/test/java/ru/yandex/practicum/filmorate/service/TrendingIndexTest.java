@@ -0,0 +1,186 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.storage.film.impl.InMemoryFilmStorage;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TrendingIndexTest {
+    private static final Duration HOUR = Duration.ofHours(1);
+    private static final Duration DAY = Duration.ofDays(1);
+
+    private MutableClock clock;
+    private TrendingIndex index;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock(Instant.parse("2024-01-01T00:30:00Z"));
+        index = new TrendingIndex(new InMemoryFilmStorage(), HOUR, List.of(DAY, HOUR), Duration.ofMinutes(1), clock);
+        index.rebuild();
+    }
+
+    @Test
+    void testRanksLikesWithinWindow() {
+        index.like(1, 1);
+        index.like(2, 1);
+        index.like(2, 2);
+        clock.advance(Duration.ofHours(2));
+        index.like(3, 1);
+
+        assertThat(index.getTop(HOUR, 10)).containsExactly(3);
+        assertThat(index.getTop(DAY, 10)).containsExactly(2, 1, 3);
+        assertThat(index.getTop(DAY, 1)).containsExactly(2);
+
+        clock.advance(Duration.ofHours(22));
+        assertThat(index.getTop(DAY, 10)).containsExactly(3);
+
+        clock.advance(Duration.ofDays(3));
+        assertThat(index.getTop(DAY, 10)).isEmpty();
+    }
+
+    @Test
+    void testUnlikeCancelsLike() {
+        index.like(1, 1);
+        index.like(2, 1);
+        index.unlike(1, 1);
+
+        assertThat(index.getTop(HOUR, 10)).containsExactly(2);
+    }
+
+    @Test
+    void testUnlikeTakesBackLikeFromItsSlot() {
+        index.like(1, 1);
+        index.like(2, 1);
+        index.like(2, 2);
+        clock.advance(Duration.ofHours(2));
+        index.like(1, 2);
+        index.unlike(2, 1);
+        index.like(2, 3);
+
+        assertThat(index.getTop(HOUR, 10)).containsExactly(1, 2);
+        assertThat(index.getTop(DAY, 10)).containsExactly(1, 2);
+
+        clock.advance(Duration.ofDays(2));
+        index.unlike(1, 1);
+        index.like(1, 3);
+
+        assertThat(index.getTop(HOUR, 10)).containsExactly(1);
+        assertThat(index.getTop(DAY, 10)).containsExactly(1);
+    }
+
+    @Test
+    void testRetainLikesTakesBackRemovedLikes() {
+        index.like(1, 1);
+        index.like(1, 2);
+        index.like(2, 1);
+        index.retainLikes(1, Set.of(2, 3));
+
+        assertThat(index.getTop(HOUR, 10)).containsExactly(1, 2);
+        index.unlike(1, 2);
+        assertThat(index.getTop(HOUR, 10)).containsExactly(2);
+    }
+
+    @Test
+    void testLiveCountsMatchRebuild() {
+        InMemoryFilmStorage storage = new InMemoryFilmStorage();
+        Film film = storage.add(Film.builder()
+                .name("film")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(100)
+                .mpa(Mpa.builder().id(1).build())
+                .build());
+        TrendingIndex live = new TrendingIndex(storage, HOUR, List.of(HOUR), Duration.ofMinutes(1),
+                Clock.systemUTC());
+        live.rebuild();
+        for (int userId = 1; userId <= 5; userId++) {
+            storage.addLike(film.getId(), userId);
+            live.like(film.getId(), userId);
+        }
+        storage.removeLike(film.getId(), 2);
+        live.unlike(film.getId(), 2);
+        TrendingIndex rebuilt = new TrendingIndex(storage, HOUR, List.of(HOUR), Duration.ofMinutes(1),
+                Clock.systemUTC());
+        rebuilt.rebuild();
+
+        assertThat(live.getTop(HOUR, 10)).containsExactly(film.getId());
+        assertThat(rebuilt.getTop(HOUR, 10)).containsExactly(film.getId());
+        for (int userId : List.of(1, 3, 4, 5)) {
+            live.unlike(film.getId(), userId);
+            rebuilt.unlike(film.getId(), userId);
+        }
+        assertThat(live.getTop(HOUR, 10)).isEmpty();
+        assertThat(rebuilt.getTop(HOUR, 10)).isEmpty();
+    }
+
+    @Test
+    void testRebuildCountsStoredLikesInWindow() {
+        InMemoryFilmStorage storage = new InMemoryFilmStorage();
+        Film film = Film.builder()
+                .name("film")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(100)
+                .mpa(Mpa.builder().id(1).build())
+                .build();
+        storage.add(film.toBuilder().likes(Set.of(1)).build());
+        storage.add(film.toBuilder().likes(Set.of(1, 2)).build());
+        TrendingIndex rebuilt = new TrendingIndex(storage, HOUR, List.of(HOUR), Duration.ofMinutes(1),
+                Clock.systemUTC());
+        rebuilt.rebuild();
+
+        assertThat(rebuilt.getTop(HOUR, 10)).containsExactly(2, 1);
+    }
+
+    @Test
+    void testUnknownWindow() {
+        assertThatThrownBy(() -> index.getTop(Duration.ofDays(7), 10))
+                .isInstanceOf(ValidationException.class)
+                .hasMessage("Window must be one of 1h, 1d");
+    }
+
+    @Test
+    void testWindowsMustBeMultiplesOfSlot() {
+        assertThatThrownBy(() -> new TrendingIndex(new InMemoryFilmStorage(), HOUR, List.of(Duration.ofMinutes(90)),
+                Duration.ofMinutes(1), clock)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant instant;
+
+        MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
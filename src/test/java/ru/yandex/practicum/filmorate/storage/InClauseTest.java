@@ -0,0 +1,33 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InClauseTest {
+
+    @Test
+    void testChunksArePaddedToPowerOfTwo() {
+        List<Object[]> chunks = InClause.chunks(List.of(1, 2, 3));
+
+        assertThat(chunks).hasSize(1);
+        assertThat(chunks.get(0)).containsExactly(1, 2, 3, 3);
+        assertThat(InClause.placeholders(chunks.get(0))).isEqualTo("?, ?, ?, ?");
+    }
+
+    @Test
+    void testLargeListsAreSplit() {
+        List<Integer> ids = IntStream.rangeClosed(1, InClause.MAX_SIZE + 1).boxed().collect(Collectors.toList());
+
+        List<Object[]> chunks = InClause.chunks(ids);
+
+        assertThat(chunks).hasSize(2);
+        assertThat(chunks.get(0)).hasSize(InClause.MAX_SIZE);
+        assertThat(chunks.get(1)).containsExactly(InClause.MAX_SIZE + 1);
+        assertThat(InClause.chunks(List.of())).isEmpty();
+    }
+}
@@ -6,23 +6,41 @@ import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.ActiveProfiles;
+import ru.yandex.practicum.filmorate.exception.ConflictException;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFacets;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Like;
 import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.user.impl.UserDbStorage;
 
+import java.time.Instant;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.assertj.core.api.AssertionsForInterfaceTypes.assertThat;
 
-@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
 @ActiveProfiles("test")
 @SpringBootTest
 @Value
 @RequiredArgsConstructor(onConstructor_ = @Autowired)
 class FilmDbStorageTest {
     FilmDbStorage filmDbStorage;
+    UserDbStorage userDbStorage;
 
     private static Film film1;
     private static Film currentFilm;
@@ -55,6 +73,235 @@ class FilmDbStorageTest {
                 .hasFieldOrPropertyWithValue("name", "film1");
     }
 
+    @Test
+    void testGetAllLoadsGenresAndLikes() {
+        User user = userDbStorage.add(User.builder()
+                .login("liker")
+                .email("liker@user.com")
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build());
+        Film withLinks = film1.toBuilder()
+                .genres(Set.of(Genre.builder().id(1).build(), Genre.builder().id(2).build()))
+                .likes(Set.of(user.getId()))
+                .build();
+        Film added = filmDbStorage.add(withLinks);
+        Film plain = filmDbStorage.add(film1);
+
+        List<Film> allFilms = filmDbStorage.getAll();
+
+        assertThat(allFilms).containsExactly(added, plain);
+        assertThat(allFilms.get(0).getGenres()).extracting(Genre::getName).containsExactlyInAnyOrder("Комедия", "Драма");
+        assertThat(allFilms.get(0).getLikes()).containsExactly(user.getId());
+        assertThat(allFilms.get(1).getGenres()).isEmpty();
+        assertThat(allFilms.get(1).getLikes()).isEmpty();
+    }
+
+    @Test
+    void testGetByIds() {
+        Film first = filmDbStorage.add(film1);
+        filmDbStorage.add(film1);
+        Film third = filmDbStorage.add(film1);
+
+        List<Film> films = filmDbStorage.getByIds(List.of(third.getId(), first.getId(), 100));
+
+        assertThat(films).containsExactlyInAnyOrder(first, third);
+    }
+
+    @Test
+    void testAddAndRemoveLike() {
+        User user = userDbStorage.add(User.builder()
+                .login("liker")
+                .email("liker@user.com")
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build());
+        Film film = filmDbStorage.add(film1);
+
+        assertThat(filmDbStorage.addLike(film.getId(), user.getId())).isTrue();
+        assertThat(filmDbStorage.addLike(film.getId(), user.getId())).isFalse();
+        assertThat(filmDbStorage.getById(film.getId()).getLikes()).containsExactly(user.getId());
+
+        assertThat(filmDbStorage.removeLike(film.getId(), user.getId())).isTrue();
+        assertThat(filmDbStorage.removeLike(film.getId(), user.getId())).isFalse();
+        assertThat(filmDbStorage.getById(film.getId()).getLikes()).isEmpty();
+    }
+
+    @Test
+    void testAddLikeToUnknownFilm() {
+        assertThatThrownBy(() -> filmDbStorage.addLike(100, 1)).isInstanceOf(NotFoundException.class);
+    }
+
+    @Test
+    void testGetPage() {
+        Film first = filmDbStorage.add(film1.toBuilder().genres(Set.of(Genre.builder().id(1).build())).build());
+        Film second = filmDbStorage.add(film1);
+        Film third = filmDbStorage.add(film1.toBuilder().genres(Set.of(Genre.builder().id(2).build())).build());
+
+        assertThat(filmDbStorage.getPage(0, 2)).containsExactly(first, second);
+        assertThat(filmDbStorage.getPage(second.getId(), 2)).containsExactly(third);
+        assertThat(filmDbStorage.getPage(third.getId(), 2)).isEmpty();
+    }
+
+    @Test
+    void testLikeCountFollowsLikeWrites() {
+        User user = userDbStorage.add(User.builder()
+                .login("liker")
+                .email("liker@user.com")
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build());
+        User other = userDbStorage.add(user.toBuilder().login("other").build());
+        Film film = filmDbStorage.add(film1.toBuilder().likes(Set.of(user.getId())).build());
+
+        assertThat(likeCount(film.getId())).isEqualTo(1);
+
+        filmDbStorage.addLike(film.getId(), other.getId());
+        filmDbStorage.addLike(film.getId(), other.getId());
+        assertThat(likeCount(film.getId())).isEqualTo(2);
+
+        filmDbStorage.removeLike(film.getId(), user.getId());
+        assertThat(likeCount(film.getId())).isEqualTo(1);
+
+        filmDbStorage.update(film.toBuilder().version(null).likes(Set.of()).build());
+        assertThat(likeCount(film.getId())).isEqualTo(0);
+    }
+
+    @Test
+    void testApplyLikesInBatch() {
+        User user = userDbStorage.add(User.builder()
+                .login("liker")
+                .email("liker@user.com")
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build());
+        User other = userDbStorage.add(user.toBuilder().login("other").build());
+        Film film = filmDbStorage.add(film1.toBuilder().likes(Set.of(user.getId())).build());
+
+        assertThat(filmDbStorage.applyLikes(List.of(new Like(film.getId(), user.getId()),
+                new Like(film.getId(), other.getId())), List.of()))
+                .containsExactly(new Like(film.getId(), other.getId()));
+        assertThat(filmDbStorage.getById(film.getId()).getLikes())
+                .containsExactlyInAnyOrder(user.getId(), other.getId());
+        assertThat(likeCount(film.getId())).isEqualTo(2);
+
+        filmDbStorage.applyLikes(List.of(), List.of(new Like(film.getId(), user.getId())));
+        assertThat(filmDbStorage.getById(film.getId()).getLikes()).containsExactly(other.getId());
+        assertThat(likeCount(film.getId())).isEqualTo(1);
+    }
+
+    @Test
+    void testLikesByFilmQueryUsesSecondaryIndex() {
+        String likesPlan = filmDbStorage.getJdbcTemplate()
+                .queryForObject("EXPLAIN SELECT film_id, user_id FROM film_likes WHERE film_id = 1", String.class);
+
+        assertThat(likesPlan).contains("film_likes_film_id_idx");
+    }
+
+    @Test
+    void testLikeCountBackfillRunsOnce() {
+        Film film = filmDbStorage.add(film1);
+        JdbcTemplate jdbcTemplate = filmDbStorage.getJdbcTemplate();
+        ResourceDatabasePopulator schema = new ResourceDatabasePopulator(new ClassPathResource("schema.sql"));
+        jdbcTemplate.update("UPDATE film SET like_count = 7 WHERE id = ?", film.getId());
+
+        schema.execute(Objects.requireNonNull(jdbcTemplate.getDataSource()));
+        assertThat(likeCount(film.getId())).isEqualTo(7);
+
+        jdbcTemplate.update("DELETE FROM schema_migration");
+        schema.execute(Objects.requireNonNull(jdbcTemplate.getDataSource()));
+        assertThat(likeCount(film.getId())).isZero();
+    }
+
+    @Test
+    void testWritesReturnWhatIsStored() {
+        Film added = filmDbStorage.add(film1.toBuilder()
+                .genres(Set.of(Genre.builder().id(1).build()))
+                .build());
+        assertThat(added).isEqualTo(filmDbStorage.getById(added.getId()));
+        assertThat(added.getMpa().getName()).isEqualTo("G");
+
+        Film updated = filmDbStorage.update(added.toBuilder()
+                .name("updated")
+                .mpa(Mpa.builder().id(2).build())
+                .genres(Set.of(Genre.builder().id(2).build()))
+                .build());
+        assertThat(updated).isEqualTo(filmDbStorage.getById(added.getId()));
+        assertThat(updated.getVersion()).isEqualTo(1);
+    }
+
+    @Test
+    void testGetFacets() {
+        User user = userDbStorage.add(User.builder()
+                .login("liker")
+                .email("liker@user.com")
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build());
+        Film added = filmDbStorage.add(film1.toBuilder()
+                .genres(Set.of(Genre.builder().id(1).build(), Genre.builder().id(3).build()))
+                .likes(Set.of(user.getId()))
+                .build());
+        Film plain = filmDbStorage.add(film1.toBuilder().mpa(Mpa.builder().id(2).build()).build());
+
+        assertThat(filmDbStorage.getFacets()).containsExactlyInAnyOrder(
+                new FilmFacets(added.getId(), 1, 1999, 1, Set.of(1, 3)),
+                new FilmFacets(plain.getId(), 0, 1999, 2, Set.of()));
+    }
+
+    @Test
+    void testUpdateKeepsLikeTimestamps() {
+        User first = userDbStorage.add(User.builder()
+                .login("first")
+                .email("first@user.com")
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build());
+        User second = userDbStorage.add(User.builder()
+                .login("second")
+                .email("second@user.com")
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build());
+        Film film = filmDbStorage.add(film1.toBuilder().likes(Set.of(first.getId())).build());
+        Map<Like, Instant> before = new HashMap<>();
+        filmDbStorage.forEachLikeSince(Instant.EPOCH, before::put);
+
+        filmDbStorage.update(film.toBuilder().likes(Set.of(first.getId(), second.getId())).build());
+        Map<Like, Instant> after = new HashMap<>();
+        filmDbStorage.forEachLikeSince(Instant.EPOCH, after::put);
+
+        Like firstLike = new Like(film.getId(), first.getId());
+        assertThat(after).hasSize(2).containsEntry(firstLike, before.get(firstLike))
+                .containsKey(new Like(film.getId(), second.getId()));
+        assertThat(filmDbStorage.getById(film.getId()).getLikes()).containsExactlyInAnyOrder(first.getId(),
+                second.getId());
+        List<Like> future = new ArrayList<>();
+        filmDbStorage.forEachLikeSince(Instant.now().plusSeconds(60), (like, likedAt) -> future.add(like));
+        assertThat(future).isEmpty();
+    }
+
+    @Test
+    void testUpdateUnknownFilm() {
+        Film unknown = film1.toBuilder().id(100).genres(Set.of(Genre.builder().id(1).build())).build();
+
+        assertThatThrownBy(() -> filmDbStorage.update(unknown)).isInstanceOf(NotFoundException.class);
+    }
+
+    @Test
+    void testUpdateWithStaleVersion() {
+        User user = userDbStorage.add(User.builder()
+                .login("liker")
+                .email("liker@user.com")
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build());
+        Film film = filmDbStorage.add(film1);
+
+        Film updated = filmDbStorage.update(film.toBuilder().name("updated").build());
+        assertThat(updated.getVersion()).isEqualTo(film.getVersion() + 1);
+
+        assertThatThrownBy(() -> filmDbStorage.update(film.toBuilder().name("stale").build()))
+                .isInstanceOf(ConflictException.class);
+
+        filmDbStorage.addLike(film.getId(), user.getId());
+        assertThatThrownBy(() -> filmDbStorage.update(updated.toBuilder().name("stale").build()))
+                .isInstanceOf(ConflictException.class);
+        assertThat(filmDbStorage.getById(film.getId()).getName()).isEqualTo("updated");
+    }
+
 //    @Test
 //    void testUpdate() {
 //        Mpa newMpa = Mpa.builder().id(2).name("PG").build();
@@ -87,4 +334,12 @@ class FilmDbStorageTest {
 //
 //        assertThat(filmById).isEqualTo(currentFilm);
 //    }
-}
\ No newline at end of file
+
+    private int likeCount(int filmId) {
+        return filmDbStorage.getFacets().stream()
+                .filter(facets -> facets.getFilmId() == filmId)
+                .findFirst()
+                .map(FilmFacets::getLikes)
+                .orElseThrow();
+    }
+}
@@ -0,0 +1,143 @@
+package ru.yandex.practicum.filmorate.storage.film.impl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFacets;
+import ru.yandex.practicum.filmorate.model.Mpa;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InMemoryFilmStorageTest {
+    private static final int THREADS = 8;
+    private static final int USERS_PER_THREAD = 2_000;
+
+    private InMemoryFilmStorage storage;
+    private Film film;
+
+    @BeforeEach
+    void setUp() {
+        storage = new InMemoryFilmStorage();
+        film = storage.add(Film.builder()
+                .name("film")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(100)
+                .mpa(Mpa.builder().id(1).build())
+                .build());
+    }
+
+    @Test
+    void testConcurrentLikesAreNotLost() throws Exception {
+        runConcurrently(thread -> {
+            for (int i = 0; i < USERS_PER_THREAD; i++) {
+                storage.addLike(film.getId(), thread * USERS_PER_THREAD + i);
+            }
+        });
+
+        assertThat(storage.getById(film.getId()).getLikes()).hasSize(THREADS * USERS_PER_THREAD);
+        assertThat(storage.getFacets()).extracting(FilmFacets::getLikes).containsExactly(THREADS * USERS_PER_THREAD);
+        assertThat(likeTimes()).hasSize(THREADS * USERS_PER_THREAD);
+    }
+
+    @Test
+    void testConcurrentLikeAndUnlikeOfSameUserReportsEachChangeOnce() throws Exception {
+        List<Integer> changes = new ArrayList<>();
+        runConcurrently(thread -> {
+            int changed = 0;
+            for (int i = 0; i < USERS_PER_THREAD; i++) {
+                if (storage.addLike(film.getId(), i)) {
+                    changed++;
+                }
+                if (storage.removeLike(film.getId(), i)) {
+                    changed--;
+                }
+            }
+            synchronized (changes) {
+                changes.add(changed);
+            }
+        });
+
+        assertThat(changes.stream().mapToInt(Integer::intValue).sum()).isZero();
+        assertThat(storage.getById(film.getId()).getLikes()).isEmpty();
+        assertThat(likeTimes()).isEmpty();
+    }
+
+    @Test
+    void testLikeTimesFollowLikeWrites() throws InterruptedException {
+        storage.update(film.toBuilder().likes(Set.of(1, 2)).build());
+        Instant secondLikedAt = likeTimes().get(1);
+        Thread.sleep(5);
+
+        storage.addLike(film.getId(), 3);
+        storage.removeLike(film.getId(), 1);
+        storage.update(storage.getById(film.getId()).toBuilder().likes(Set.of(2, 3, 4)).build());
+
+        List<Instant> times = likeTimes();
+        assertThat(times).hasSize(3);
+        assertThat(times.get(0)).isEqualTo(secondLikedAt);
+        assertThat(times.subList(1, 3)).allMatch(time -> time.isAfter(secondLikedAt));
+        assertThat(storage.getById(film.getId()).getLikes()).containsExactlyInAnyOrder(2, 3, 4);
+    }
+
+    @Test
+    void testConcurrentAddsGetDistinctIds() throws Exception {
+        runConcurrently(thread -> {
+            for (int i = 0; i < 100; i++) {
+                storage.add(film);
+            }
+        });
+
+        Set<Integer> ids = storage.getAll().stream().map(Film::getId).collect(Collectors.toSet());
+        assertThat(ids).hasSize(THREADS * 100 + 1);
+    }
+
+    @Test
+    void testReturnedFilmDoesNotShareLikeSet() {
+        storage.getById(film.getId()).getLikes().add(1);
+
+        assertThat(storage.getById(film.getId()).getLikes()).isEmpty();
+    }
+
+    private List<Instant> likeTimes() {
+        List<Instant> times = new ArrayList<>();
+        storage.forEachLikeSince(Instant.EPOCH, (like, likedAt) -> times.add(likedAt));
+        return times;
+    }
+
+    private void runConcurrently(ThreadTask task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = IntStream.range(0, THREADS)
+                    .mapToObj(thread -> executor.submit(() -> {
+                        start.await();
+                        task.run(thread);
+                        return null;
+                    }))
+                    .collect(Collectors.toList());
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private interface ThreadTask {
+        void run(int thread);
+    }
+}
@@ -7,11 +7,13 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.ActiveProfiles;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Genre;
 
 import java.util.List;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
 
 @ActiveProfiles("test")
 @SpringBootTest
@@ -42,4 +44,20 @@ class GenreDbStorageTest {
                 .hasFieldOrPropertyWithValue("id", 1)
                 .hasFieldOrPropertyWithValue("name", "Комедия");
     }
-}
\ No newline at end of file
+
+    @Test
+    void testRefreshPicksUpNewRows() {
+        genreDbStorage.getAll();
+        genreDbStorage.getJdbcTemplate().update("INSERT INTO genre (id, name) VALUES (100, 'Новый')");
+        try {
+            assertThatThrownBy(() -> genreDbStorage.getById(100)).isInstanceOf(NotFoundException.class);
+
+            genreDbStorage.refresh();
+
+            assertThat(genreDbStorage.getById(100)).hasFieldOrPropertyWithValue("name", "Новый");
+        } finally {
+            genreDbStorage.getJdbcTemplate().update("DELETE FROM genre WHERE id = 100");
+            genreDbStorage.refresh();
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package ru.yandex.practicum.filmorate.storage.graph;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AdjacencyStoreTest {
+
+    @Test
+    void testAddAndRemoveKeepNeighboursSorted() {
+        AdjacencyStore store = new AdjacencyStore(false);
+
+        assertThat(store.add(1, 5)).isTrue();
+        assertThat(store.add(1, 2)).isTrue();
+        assertThat(store.add(1, 9)).isTrue();
+        assertThat(store.add(1, 2)).isFalse();
+        assertThat(store.neighbours(1)).containsExactly(2, 5, 9);
+        assertThat(store.contains(1, 5)).isTrue();
+
+        assertThat(store.remove(1, 5)).isTrue();
+        assertThat(store.remove(1, 5)).isFalse();
+        assertThat(store.remove(2, 1)).isFalse();
+        assertThat(store.neighbours(1)).containsExactly(2, 9);
+        assertThat(store.degree(1)).isEqualTo(2);
+        assertThat(store.degree(3)).isZero();
+    }
+
+    @Test
+    void testReverseIndexFollowsForwardEdges() {
+        AdjacencyStore store = new AdjacencyStore(true);
+        store.add(1, 10);
+        store.add(2, 10);
+        store.add(2, 20);
+
+        assertThat(store.reverseNeighbours(10)).containsExactly(1, 2);
+        assertThat(store.reverseNeighbours(20)).containsExactly(2);
+
+        store.replace(2, List.of(20, 30));
+        assertThat(store.neighbours(2)).containsExactly(20, 30);
+        assertThat(store.reverseNeighbours(10)).containsExactly(1);
+        assertThat(store.reverseNeighbours(30)).containsExactly(2);
+
+        store.remove(1, 10);
+        assertThat(store.reverseNeighbours(10)).isEmpty();
+    }
+
+    @Test
+    void testReverseNeighboursWithoutReverseIndex() {
+        AdjacencyStore store = new AdjacencyStore(false);
+
+        assertThatThrownBy(() -> store.reverseNeighbours(1)).isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    void testLoadReplacesEdges() {
+        AdjacencyStore store = new AdjacencyStore(true);
+        store.add(7, 7);
+
+        store.load(new int[]{2, 1, 2, 1}, new int[]{10, 20, 10, 10}, 3);
+
+        assertThat(store.nodes()).containsExactlyInAnyOrder(1, 2);
+        assertThat(store.neighbours(1)).containsExactly(20);
+        assertThat(store.neighbours(2)).containsExactly(10);
+        assertThat(store.reverseNeighbours(10)).containsExactly(2);
+        assertThat(store.reverseNeighbours(7)).isEmpty();
+    }
+
+    @Test
+    void testRankSecondDegree() {
+        AdjacencyStore store = new AdjacencyStore(false);
+        store.add(1, 2);
+        store.add(1, 3);
+        store.add(2, 1);
+        store.add(2, 4);
+        store.add(3, 2);
+        store.add(3, 4);
+        store.add(3, 5);
+
+        assertThat(store.rankSecondDegree(1, 10, 10)).containsExactly(Map.entry(4, 2), Map.entry(5, 1));
+        assertThat(store.rankSecondDegree(1, 2, 10)).containsExactly(Map.entry(4, 2));
+        assertThat(store.rankSecondDegree(1, 10, 1)).containsOnlyKeys(4);
+        assertThat(store.rankSecondDegree(9, 10, 10)).isEmpty();
+    }
+
+    @Test
+    void testIntersection() {
+        int[] a = {1, 3, 5, 7, 9};
+        int[] b = {2, 3, 4, 7, 10};
+
+        assertThat(AdjacencyStore.intersect(a, b)).containsExactly(3, 7);
+        assertThat(AdjacencyStore.intersectionSize(a, b)).isEqualTo(2);
+        assertThat(AdjacencyStore.intersect(a, new int[0])).isEmpty();
+    }
+
+    @Test
+    void testConversions() {
+        assertThat(AdjacencyStore.toSortedArray(Set.of(4, 1, 3))).containsExactly(1, 3, 4);
+        assertThat(AdjacencyStore.toSet(new int[]{2, 8})).containsExactlyInAnyOrder(2, 8);
+    }
+}
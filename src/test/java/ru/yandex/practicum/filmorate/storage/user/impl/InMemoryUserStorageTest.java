@@ -0,0 +1,86 @@
+package ru.yandex.practicum.filmorate.storage.user.impl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InMemoryUserStorageTest {
+    private static final int THREADS = 8;
+    private static final int USERS = 400;
+
+    private InMemoryUserStorage storage;
+
+    @BeforeEach
+    void setUp() {
+        storage = new InMemoryUserStorage();
+        for (int i = 0; i < USERS; i++) {
+            storage.add(User.builder()
+                    .login("user" + i)
+                    .email("user" + i + "@mail.ru")
+                    .birthday(LocalDate.of(1990, 1, 1))
+                    .build());
+        }
+    }
+
+    @Test
+    void testConcurrentFriendshipsAreNotLost() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = IntStream.range(0, THREADS)
+                    .mapToObj(thread -> executor.submit(() -> {
+                        start.await();
+                        for (int friendId = 2 + thread; friendId <= USERS; friendId += THREADS) {
+                            storage.addFriendship(1, friendId);
+                            storage.addFriendship(friendId, 1);
+                        }
+                        return null;
+                    }))
+                    .collect(Collectors.toList());
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(storage.getById(1).getFriends()).hasSize(USERS - 1);
+        assertThat(storage.getCommonFriends(2, 3)).extracting(User::getId).containsExactly(1);
+    }
+
+    @Test
+    void testUpdateKeepsFriendsConsistent() {
+        storage.addFriendship(1, 2);
+        User user = storage.getById(1);
+
+        User updated = storage.update(user.toBuilder().name("updated").build());
+
+        assertThat(updated.getName()).isEqualTo("updated");
+        assertThat(updated.getFriends()).containsExactly(2);
+        assertThat(storage.getByIds(List.of(1), false).get(0).getFriends()).isEmpty();
+    }
+
+    @Test
+    void testGetFriendIdsPage() {
+        storage.addFriendship(1, 5);
+        storage.addFriendship(1, 3);
+        storage.addFriendship(1, 4);
+
+        assertThat(storage.getFriendIds(1, 0, 2)).containsExactly(3, 4);
+        assertThat(storage.getFriendIds(1, 4, 2)).containsExactly(5);
+        assertThat(storage.getFriendIds(2, 0, 2)).isEmpty();
+    }
+}
@@ -4,17 +4,25 @@ import lombok.RequiredArgsConstructor;
 import lombok.Value;
 import org.assertj.core.api.AssertionsForInterfaceTypes;
 import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.ActiveProfiles;
+import ru.yandex.practicum.filmorate.exception.ConflictException;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
 
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
 @ActiveProfiles("test")
 @SpringBootTest
 @Value
@@ -35,6 +43,7 @@ class UserDbStorageTest {
     }
 
     @Test
+    @Order(1)
     void testAdd() {
         currentUser = userDbStorage.add(user1);
 
@@ -44,6 +53,7 @@ class UserDbStorageTest {
     }
 
     @Test
+    @Order(2)
     void testUpdate() {
         User updatedUser = currentUser.toBuilder()
                 .name("updated user")
@@ -59,6 +69,7 @@ class UserDbStorageTest {
     }
 
     @Test
+    @Order(3)
     void testGetAll() {
         List<User> allUsers = userDbStorage.getAll();
 
@@ -66,10 +77,147 @@ class UserDbStorageTest {
     }
 
     @Test
+    @Order(4)
     void testGetById() {
         User userById = userDbStorage.getById(1);
 
         assertThat(userById).isEqualTo(currentUser);
     }
 
-}
\ No newline at end of file
+    @Test
+    @Order(5)
+    void testAddAndRemoveFriendship() {
+        User friend = userDbStorage.add(user1.toBuilder()
+                .login("friend")
+                .email("friend@user.com")
+                .build());
+        int userId = currentUser.getId();
+
+        assertThat(userDbStorage.addFriendship(userId, friend.getId())).isTrue();
+        assertThat(userDbStorage.addFriendship(userId, friend.getId())).isFalse();
+        AssertionsForInterfaceTypes.assertThat(userDbStorage.getById(userId).getFriends())
+                .containsExactly(friend.getId());
+        AssertionsForInterfaceTypes.assertThat(userDbStorage.getById(friend.getId()).getFriends()).isEmpty();
+
+        assertThat(userDbStorage.removeFriendship(userId, friend.getId())).isTrue();
+        assertThat(userDbStorage.removeFriendship(userId, friend.getId())).isFalse();
+        AssertionsForInterfaceTypes.assertThat(userDbStorage.getById(userId).getFriends()).isEmpty();
+    }
+
+    @Test
+    @Order(6)
+    void testAddFriendshipWithUnknownUser() {
+        assertThatThrownBy(() -> userDbStorage.addFriendship(currentUser.getId(), 100))
+                .isInstanceOf(NotFoundException.class);
+    }
+
+    @Test
+    @Order(7)
+    void testGetCommonFriends() {
+        User other = userDbStorage.add(user1.toBuilder().login("other").build());
+        User common = userDbStorage.add(user1.toBuilder().login("common").build());
+        User onlyMine = userDbStorage.add(user1.toBuilder().login("only_mine").build());
+        userDbStorage.addFriendship(currentUser.getId(), common.getId());
+        userDbStorage.addFriendship(currentUser.getId(), onlyMine.getId());
+        userDbStorage.addFriendship(other.getId(), common.getId());
+        userDbStorage.addFriendship(common.getId(), other.getId());
+
+        List<User> commonFriends = userDbStorage.getCommonFriends(currentUser.getId(), other.getId());
+
+        AssertionsForInterfaceTypes.assertThat(commonFriends).containsExactly(userDbStorage.getById(common.getId()));
+        AssertionsForInterfaceTypes.assertThat(commonFriends.get(0).getFriends()).containsExactly(other.getId());
+    }
+
+    @Test
+    @Order(8)
+    void testGetByIds() {
+        User friend = userDbStorage.add(user1.toBuilder().login("by_ids").build());
+        userDbStorage.addFriendship(friend.getId(), currentUser.getId());
+
+        List<User> users = userDbStorage.getByIds(List.of(friend.getId(), currentUser.getId(), 100));
+        List<User> shallowUsers = userDbStorage.getByIds(List.of(friend.getId()), false);
+
+        AssertionsForInterfaceTypes.assertThat(users)
+                .containsExactly(userDbStorage.getById(currentUser.getId()), userDbStorage.getById(friend.getId()));
+        AssertionsForInterfaceTypes.assertThat(users.get(1).getFriends()).containsExactly(currentUser.getId());
+        AssertionsForInterfaceTypes.assertThat(shallowUsers.get(0).getFriends()).isEmpty();
+    }
+
+    @Test
+    @Order(9)
+    void testGetPage() {
+        List<User> allUsers = userDbStorage.getAll();
+
+        List<User> firstPage = userDbStorage.getPage(0, 2);
+        List<User> secondPage = userDbStorage.getPage(firstPage.get(1).getId(), allUsers.size());
+
+        AssertionsForInterfaceTypes.assertThat(firstPage).containsExactlyElementsOf(allUsers.subList(0, 2));
+        AssertionsForInterfaceTypes.assertThat(secondPage).containsExactlyElementsOf(allUsers.subList(2, allUsers.size()));
+    }
+
+    @Test
+    @Order(10)
+    void testReverseFriendLookupUsesIndex() {
+        String plan = userDbStorage.getJdbcTemplate()
+                .queryForObject("EXPLAIN SELECT user_id FROM user_friends WHERE friend_id = 1", String.class);
+
+        assertThat(plan).contains("user_friends_friend_id_idx");
+    }
+
+    @Test
+    @Order(11)
+    void testUpdateWithStaleVersion() {
+        User user = userDbStorage.getById(1);
+        User updated = userDbStorage.update(user.toBuilder().name("versioned").build());
+
+        assertThat(updated.getVersion()).isEqualTo(user.getVersion() + 1);
+        assertThatThrownBy(() -> userDbStorage.update(user.toBuilder().name("stale").build()))
+                .isInstanceOf(ConflictException.class);
+        assertThat(userDbStorage.getById(1).getName()).isEqualTo("versioned");
+    }
+
+    @Test
+    @Order(12)
+    void testGetFriendCandidates() {
+        User a = userDbStorage.add(user1.toBuilder().login("fof_a").build());
+        User b = userDbStorage.add(user1.toBuilder().login("fof_b").build());
+        User c = userDbStorage.add(user1.toBuilder().login("fof_c").build());
+        User d = userDbStorage.add(user1.toBuilder().login("fof_d").build());
+        User e = userDbStorage.add(user1.toBuilder().login("fof_e").build());
+        userDbStorage.addFriendship(a.getId(), b.getId());
+        userDbStorage.addFriendship(a.getId(), c.getId());
+        userDbStorage.addFriendship(b.getId(), a.getId());
+        userDbStorage.addFriendship(b.getId(), d.getId());
+        userDbStorage.addFriendship(c.getId(), b.getId());
+        userDbStorage.addFriendship(c.getId(), d.getId());
+        userDbStorage.addFriendship(c.getId(), e.getId());
+
+        AssertionsForInterfaceTypes.assertThat(userDbStorage.getFriendCandidates(a.getId(), 1000, 10))
+                .containsExactly(Map.entry(d.getId(), 2), Map.entry(e.getId(), 1));
+        AssertionsForInterfaceTypes.assertThat(userDbStorage.getFriendCandidates(a.getId(), 2, 10))
+                .containsExactly(Map.entry(d.getId(), 2));
+        AssertionsForInterfaceTypes.assertThat(userDbStorage.getFriendCandidates(a.getId(), 1000, 1))
+                .containsOnlyKeys(d.getId());
+        AssertionsForInterfaceTypes.assertThat(userDbStorage.getIdsWithFriend(d.getId()))
+                .containsExactlyInAnyOrder(b.getId(), c.getId());
+    }
+
+    @Test
+    @Order(13)
+    void testGetFriendIdsPage() {
+        User user = userDbStorage.add(user1.toBuilder().login("paged").build());
+        User a = userDbStorage.add(user1.toBuilder().login("paged_a").build());
+        User b = userDbStorage.add(user1.toBuilder().login("paged_b").build());
+        User c = userDbStorage.add(user1.toBuilder().login("paged_c").build());
+        userDbStorage.addFriendship(user.getId(), c.getId());
+        userDbStorage.addFriendship(user.getId(), a.getId());
+        userDbStorage.addFriendship(user.getId(), b.getId());
+
+        AssertionsForInterfaceTypes.assertThat(userDbStorage.getFriendIds(user.getId(), 0, 2))
+                .containsExactly(a.getId(), b.getId());
+        AssertionsForInterfaceTypes.assertThat(userDbStorage.getFriendIds(user.getId(), b.getId(), 2))
+                .containsExactly(c.getId());
+        AssertionsForInterfaceTypes.assertThat(userDbStorage.getFriendIds(user.getId(), c.getId(), 2)).isEmpty();
+        assertThatThrownBy(() -> userDbStorage.getFriendIds(1000, 0, 2)).isInstanceOf(NotFoundException.class);
+    }
+}